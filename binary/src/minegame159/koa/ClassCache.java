@@ -0,0 +1,132 @@
+package minegame159.koa;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Stores the classes compiled from a script on disk so later processes can load them without compiling again
+public class ClassCache {
+    // Bump when the layout of entry files changes, changes to the generated code are covered by the build hash in the key
+    public static final int VERSION = 2;
+
+    private static final int MAGIC = 0x4B4F4143;
+
+    // Hash of the compiler and runtime classes that the build writes to build-hash, entries written by any other build are never loaded.
+    // Null if it's missing or can't be read, nothing could tell builds apart then so the cache is not used
+    public static final String BUILD = readBuild();
+
+    private final File directory;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    public ClassCache(File directory) {
+        this.directory = directory;
+    }
+
+    public static String key(String file, String source, int optimizationLevel) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(BUILD.getBytes(StandardCharsets.UTF_8));
+            digest.update((VERSION + "\0" + optimizationLevel + "\0" + file + "\0").getBytes(StandardCharsets.UTF_8));
+            digest.update(source.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String readBuild() {
+        try (InputStream in = ClassCache.class.getResourceAsStream("build-hash")) {
+            if (in == null) return null;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) != -1) bytes.write(buffer, 0, read);
+
+            String hash = new String(bytes.toByteArray(), StandardCharsets.UTF_8).trim();
+            return hash.isEmpty() ? null : hash;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Classes by name with the main class first, null if there is no usable entry
+    public LinkedHashMap<String, byte[]> get(String key) {
+        File file = new File(directory, key + ".koac");
+
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(Files.newInputStream(file.toPath()))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    int count = in.readInt();
+                    LinkedHashMap<String, byte[]> classes = new LinkedHashMap<>(count);
+
+                    for (int i = 0; i < count; i++) {
+                        String name = in.readUTF();
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        classes.put(name, bytes);
+                    }
+
+                    hits.incrementAndGet();
+                    return classes;
+                }
+            } catch (IOException ignored) {
+                // Broken entries are overwritten after compiling
+            }
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, LinkedHashMap<String, byte[]> classes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(classes.size());
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().length);
+                out.write(entry.getValue());
+            }
+            out.close();
+
+            // Other processes may read the same entry so it's written to a temporary file first and then moved in place
+            Files.createDirectories(directory.toPath());
+            File temp = File.createTempFile(key, ".tmp", directory);
+            Files.write(temp.toPath(), bytes.toByteArray());
+            try {
+                Files.move(temp.toPath(), new File(directory, key + ".koac").toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp.toPath());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public int hits() {
+        return hits.get();
+    }
+
+    public int misses() {
+        return misses.get();
+    }
+}
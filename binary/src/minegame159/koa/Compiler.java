@@ -0,0 +1,1821 @@
+package minegame159.koa;
+
+import minegame159.koa.asm.ClassBuilder;
+import minegame159.koa.asm.MethodBuilder;
+import minegame159.koa.ast.Analyzer;
+import minegame159.koa.ast.Expr;
+import minegame159.koa.ast.Splitter;
+import minegame159.koa.ast.Stmt;
+import minegame159.koa.tables.StringTable;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static minegame159.koa.asm.ASM.*;
+
+public class Compiler implements Stmt.Visitor, Expr.Visitor {
+    private ClassBuilder c;
+    private MethodBuilder m;
+    private final Analyzer.Result analysis;
+    private final Globals globals;
+    private final String file;
+
+    private int scopeDepth;
+    private ArrayList<Local> locals = new ArrayList<>();
+    private int firstLocal = 3;
+
+    private Label lLoopEnd, lLoopExit;
+
+    // Loop invariant globals and constant key reads kept in temporary locals while a loop is compiled
+    private HashMap<String, Local> hoisted = new HashMap<>();
+
+    // Global the function being compiled is bound to, self-recursive tail calls through it jump back to lTailCall
+    private String functionName, tailCallName;
+    private int tailCallArgCount;
+    private Label lTailCall;
+    private int line;
+    // Set while compiling the cold side of an arithmetic fast path, arithmetic there is boxed so subtrees aren't emitted twice
+    private boolean boxed;
+
+    // Function classes are named up front so inlined calls can check for them before the function is compiled
+    private final Unit unit;
+    private final LinkedHashMap<String, byte[]> functions = new LinkedHashMap<>();
+    private boolean inlining;
+
+    // Function literals become a LazyFunction and get their class when first called, except the ones calls are inlined from
+    private final boolean lazy;
+    // Class of a lazily compiled function, its self tail calls compare the global with the LazyFunction standing in for it
+    private String lazyClass;
+    // Units with lazy function literals until their classes are loaded, byte arrays only equal themselves so every map finds its own unit
+    private static final Map<LinkedHashMap<String, byte[]>, Unit> loading = Collections.synchronizedMap(new WeakHashMap<>());
+    // Loop a class is compiled for when it gets hot in the interpreter, its initializer already ran
+    private Stmt osrLoop;
+
+    // Statement lists that would make a method too big for the JIT are moved into chunk methods
+    private static final int MAX_CHUNK_SLOTS = 250;
+    private final Splitter splitter = new Splitter();
+    private int chunkCount;
+    private boolean hasSelf, hasArgs;
+
+    private Compiler(String file, String className, ArrayList<Stmt> stmts, Analyzer.Result analysis, Globals globals, boolean lazy) {
+        this.analysis = analysis;
+        this.globals = globals;
+        this.file = file;
+        this.lazy = lazy;
+        unit = new Unit(file, className, analysis, false);
+        c = new ClassBuilder(unit.name, OBJECT, new String[] {RUNNABLE});
+        c.field("globals", GLOBALS_D);
+        c.field("file", STRING_D);
+        {   // constructor
+            MethodBuilder m = c.method("<init>", "V");
+            m.callSuper();
+            m.insn(Opcodes.RETURN);
+            m.end();
+        }
+        m = c.method("run", "V");
+        compile(stmts);
+        m.insn(Opcodes.RETURN);
+        m.end();
+        {   // Slots the compiled code was linked against
+            String[] layout = globals.layout();
+            c.staticField("GLOBALS", "[" + STRING_D);
+            MethodBuilder init = c.staticInit();
+            init.ldcInsn(layout.length);
+            init.typeInsn(Opcodes.ANEWARRAY, STRING);
+            for (int i = 0; i < layout.length; i++) {
+                init.insn(Opcodes.DUP);
+                init.ldcInsn(i);
+                init.ldcInsn(layout[i]);
+                init.insn(Opcodes.AASTORE);
+            }
+            init.fieldInsn(Opcodes.PUTSTATIC, c.name, "GLOBALS", "[" + STRING_D);
+        }
+        c.end();
+    }
+
+    private Compiler(Template template, String className, Globals globals) {
+        analysis = template.unit.analysis;
+        this.globals = globals;
+        file = template.unit.file;
+        unit = template.unit;
+        lazy = true;
+        lazyClass = className;
+        osrLoop = template.loop;
+        scopeDepth = template.scopeDepth;
+        compileFunction(template.function, template.name, className);
+    }
+
+    // Returns the bytes of every class by name, the main class comes first
+    public static LinkedHashMap<String, byte[]> compile(String file, ArrayList<Stmt> stmts, Analyzer.Result analysis, Globals globals, boolean lazy) {
+        Compiler compiler = new Compiler(file, unitName(file), stmts, analysis, globals, lazy);
+
+        LinkedHashMap<String, byte[]> classes = new LinkedHashMap<>();
+        classes.put(compiler.c.name.replace('/', '.'), compiler.c.build());
+        classes.putAll(compiler.functions);
+        if (!compiler.unit.lazy.isEmpty()) loading.put(classes, compiler.unit);
+        return classes;
+    }
+
+    // Named after the script so the same script always gets the same classes, other characters than letters and digits are escaped
+    // and $ only separates the name of the unit from the names of its function classes
+    static String unitName(String file) {
+        StringBuilder sb = new StringBuilder("minegame159/koa/compiled/");
+
+        for (int i = 0; i < file.length(); i++) {
+            char c = file.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) sb.append(c);
+            else sb.append('_').append(Integer.toHexString(c)).append('_');
+        }
+
+        return sb.toString();
+    }
+
+    // Defines the classes in a loader of their own, the returned runnable still has to be linked against globals
+    public static Runnable load(LinkedHashMap<String, byte[]> classes, String file) {
+        Unit unit = loading.remove(classes);
+        KoaClassLoader loader = unit != null ? unit.loader() : new KoaClassLoader(Compiler.class.getClassLoader());
+
+        return KoaClassLoader.instantiate(define(loader, classes, classes.keySet().iterator().next()), file);
+    }
+
+    private static Class<?> define(KoaClassLoader loader, LinkedHashMap<String, byte[]> classes, String name) {
+        Class<?> klass = null;
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            Class<?> defined = loader.define(entry.getKey(), entry.getValue());
+            if (entry.getKey().equals(name.replace('/', '.'))) klass = defined;
+        }
+        return klass;
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        compile(stmt.stmts);
+        endScope();
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        compileDiscarded(stmt.expr);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        if (scopeDepth > 0 && analysis.isNumber(stmt)) {
+            compileNumber(stmt.initializer);
+            m.varInsn(Opcodes.DSTORE, addLocal(stmt.name, true).index);
+            return;
+        }
+
+        if (scopeDepth == 0 && stmt.initializer instanceof Expr.Function) functionName = stmt.name.lexeme;
+        compile(stmt.initializer);
+        if (stmt.initializer == null) emitNull();
+
+        if (scopeDepth == 0) {
+            setGlobal(stmt.name.lexeme);
+        } else setLocal(addLocal(stmt.name, false));
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        Label lElse = new Label();
+        Label lExit = new Label();
+
+        // Condition
+        branch(stmt.condition, false, lElse);
+
+        // Then
+        compile(stmt.thenBranch);
+        m.jumpInsn(Opcodes.GOTO, lExit);
+
+        // Else
+        m.label(lElse);
+        compile(stmt.elseBranch);
+
+        // Exit
+        m.label(lExit);
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        Label lLoopStart = new Label();
+        Label enclosingLLoopEnd = lLoopEnd;
+        Label enclosingLLoopExit = lLoopExit;
+        lLoopEnd = new Label();
+        lLoopExit = new Label();
+
+        ArrayList<Local> temps = beginLoop(stmt);
+
+        // Loop start (condition)
+        m.label(lLoopStart);
+        branch(stmt.condition, false, lLoopExit);
+
+        // Body
+        compile(stmt.body);
+        m.label(lLoopEnd);
+        m.jumpInsn(Opcodes.GOTO, lLoopStart);
+
+        // Exit
+        m.label(lLoopExit);
+
+        endLoop(temps);
+        lLoopEnd = enclosingLLoopEnd;
+        lLoopExit = enclosingLLoopExit;
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        Label lLoopStart = new Label();
+        Label enclosingLLoopEnd = lLoopEnd;
+        Label enclosingLLoopExit = lLoopExit;
+        lLoopEnd = new Label();
+        lLoopExit = new Label();
+
+        beginScope();
+
+        // Initializer
+        if (stmt != osrLoop) compile(stmt.initializer);
+        ArrayList<Local> temps = beginLoop(stmt);
+
+        // Loop start (condition)
+        m.label(lLoopStart);
+        if (stmt.condition != null) branch(stmt.condition, false, lLoopExit);
+
+        // Body
+        compile(stmt.body);
+        m.label(lLoopEnd);
+        if (stmt.increment != null) compileDiscarded(stmt.increment);
+        m.jumpInsn(Opcodes.GOTO, lLoopStart);
+
+        // Exit
+        m.label(lLoopExit);
+
+        endLoop(temps);
+        endScope();
+        lLoopEnd = enclosingLLoopEnd;
+        lLoopExit = enclosingLLoopExit;
+    }
+
+    private ArrayList<Local> beginLoop(Stmt stmt) {
+        Analyzer.Loop loop = analysis.loop(stmt);
+        ArrayList<Local> temps = new ArrayList<>(0);
+
+        // Globals that are never assigned are read once before the loop
+        for (String name : loop.globals) {
+            if (hoisted.containsKey(name) || resolveLocal(name) != null) continue;
+
+            getGlobal(name);
+            Local temp = addTemp(name);
+            setLocal(temp);
+            temps.add(temp);
+        }
+
+        // Constant key reads are done on first use because the loop might not run and the global might not be a table
+        for (String member : loop.members) {
+            if (hoisted.containsKey(member)) continue;
+
+            m.insn(Opcodes.ACONST_NULL);
+            Local temp = addTemp(member);
+            setLocal(temp);
+            temps.add(temp);
+        }
+
+        return temps;
+    }
+    private void endLoop(ArrayList<Local> temps) {
+        for (int i = 0; i < temps.size(); i++) {
+            hoisted.remove(temps.get(i).name.lexeme.substring(1));
+            locals.remove(temps.get(i));
+        }
+    }
+    private Local addTemp(String name) {
+        // The name can't clash with identifiers in the script
+        Local temp = addLocal(new Token(Token.Type.Identifier, "@" + name, line), false);
+        hoisted.put(name, temp);
+        return temp;
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {
+        m.jumpInsn(Opcodes.GOTO, lLoopExit);
+    }
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {
+        m.jumpInsn(Opcodes.GOTO, lLoopEnd);
+    }
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        if (isSelfTailCall(stmt.value)) {
+            Expr.Call call = (Expr.Call) stmt.value;
+            Label lCall = new Label();
+
+            // Only jump back when the global still holds this function
+            getGlobal(tailCallName);
+            m.varInsn(Opcodes.ALOAD, 0);
+            if (c.name.equals(lazyClass)) m.fieldInsn(Opcodes.GETFIELD, c.name, "stub", VALUE_FUNCTION_D);
+            m.jumpInsn(Opcodes.IF_ACMPNE, lCall);
+
+            for (int i = 0; i < call.args.size(); i++) compile(call.args.get(i));
+            for (int i = call.args.size() - 1; i >= 0; i--) m.varInsn(Opcodes.ASTORE, 2 + i);
+            m.insn(Opcodes.ACONST_NULL);
+            m.varInsn(Opcodes.ASTORE, 1);
+            m.jumpInsn(Opcodes.GOTO, lTailCall);
+
+            m.label(lCall);
+        }
+
+        compile(stmt.value);
+        m.insn(Opcodes.ARETURN);
+    }
+
+    private boolean isSelfTailCall(Expr expr) {
+        if (tailCallName == null || !(expr instanceof Expr.Call)) return false;
+
+        Expr.Call call = (Expr.Call) expr;
+        if (!(call.callee instanceof Expr.Variable)) return false;
+
+        Token name = ((Expr.Variable) call.callee).name;
+        return name.lexeme.equals(tailCallName) && resolveLocal(name) == null && call.args.size() == tailCallArgCount;
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        if (isArithmetic(expr.operator.type) && boxed) {
+            compile(expr.left);
+            compile(expr.right);
+            arithmetic(expr.operator.type);
+        }
+        else if (isArithmetic(expr.operator.type)) {
+            Label lValue = new Label();
+
+            // Only box the result of the whole arithmetic subtree
+            compileDouble(expr, lValue);
+            emitNumber();
+            m.label(lValue);
+        } else emitCondition(expr);
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        compile(expr.expr);
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) emitNull();
+        else if (expr.value instanceof Boolean) emitBool((boolean) expr.value);
+        else if (expr.value instanceof Double) emitNumber((double) expr.value);
+        else if (expr.value instanceof String) emitString((String) expr.value);
+    }
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        emitCondition(expr);
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == Token.Type.Minus) {
+            compileDouble(expr, null);
+            emitNumber();
+        } else if (expr.operator.type == Token.Type.Bang) emitCondition(expr);
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {
+        Local local = resolveLocal(expr.name);
+        if (local == null) local = hoisted.get(expr.name.lexeme);
+
+        if (local != null) getLocal(local);
+        else getGlobal(expr.name.lexeme);
+    }
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        assign(expr, true);
+    }
+
+    private void assign(Expr.Assign expr, boolean keepValue) {
+        Local local = resolveLocal(expr.name);
+
+        if (local != null && local.number) {
+            assignNumber(expr, local, keepValue);
+            return;
+        }
+
+        if (expr.operator.type == Token.Type.Equal) { // =
+            if (local == null && expr.value instanceof Expr.Function) functionName = expr.name.lexeme;
+            compile(expr.value);
+            if (keepValue) m.insn(Opcodes.DUP);
+
+            if (local != null) setLocal(local);
+            else setGlobal(expr.name.lexeme);
+        } else { // ++, --, +=, -=, *=, /=, %=
+            // Get value
+            if (local != null) getLocal(local);
+            else getGlobal(expr.name.lexeme);
+
+            // Compute value
+            if (expr.operator.type == Token.Type.PlusPlus || expr.operator.type == Token.Type.MinusMinus) { // ++, --
+                toNumber();
+                m.insn(Opcodes.DCONST_1);
+                m.insn(expr.operator.type == Token.Type.PlusPlus ? Opcodes.DADD : Opcodes.DSUB);
+                emitNumber();
+            } else { // +=, -=, *=, /=, %=
+                Label lValue = new Label();
+                Label lExit = new Label();
+
+                m.insn(Opcodes.DUP);
+                isNumber();
+                m.jumpInsn(Opcodes.IFEQ, lValue);
+
+                // Number
+                m.methodInsn(VALUE, "toNumber", "D");
+                compileNumber(expr.value);
+                switch (expr.operator.type) {
+                    case PlusEqual:       m.insn(Opcodes.DADD); break;
+                    case MinusEqual:      m.insn(Opcodes.DSUB); break;
+                    case StarEqual:       m.insn(Opcodes.DMUL); break;
+                    case SlashEqual:      m.insn(Opcodes.DDIV); break;
+                    case PercentageEqual: m.insn(Opcodes.DREM); break;
+                }
+                emitNumber();
+                m.jumpInsn(Opcodes.GOTO, lExit);
+
+                m.label(lValue); // Anything else goes through metamethods
+                compileBoxed(expr.value);
+                arithmetic(expr.operator.type);
+
+                m.label(lExit);
+            }
+
+            // Set value
+            if (keepValue) m.insn(Opcodes.DUP);
+            if (local != null) setLocal(local);
+            else setGlobal(expr.name.lexeme);
+        }
+    }
+
+    private void assignNumber(Expr.Assign expr, Local local, boolean keepValue) {
+        if (expr.operator.type == Token.Type.Equal) compileNumber(expr.value); // =
+        else {
+            m.varInsn(Opcodes.DLOAD, local.index);
+
+            switch (expr.operator.type) {
+                case PlusPlus:        m.insn(Opcodes.DCONST_1); m.insn(Opcodes.DADD); break;
+                case MinusMinus:      m.insn(Opcodes.DCONST_1); m.insn(Opcodes.DSUB); break;
+                case PlusEqual:       compileNumber(expr.value); m.insn(Opcodes.DADD); break;
+                case MinusEqual:      compileNumber(expr.value); m.insn(Opcodes.DSUB); break;
+                case StarEqual:       compileNumber(expr.value); m.insn(Opcodes.DMUL); break;
+                case SlashEqual:      compileNumber(expr.value); m.insn(Opcodes.DDIV); break;
+                case PercentageEqual: compileNumber(expr.value); m.insn(Opcodes.DREM); break;
+            }
+        }
+
+        if (keepValue) m.insn(Opcodes.DUP2);
+        m.varInsn(Opcodes.DSTORE, local.index);
+        if (keepValue) emitNumber();
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        // Create new table
+        m.typeInsn(Opcodes.NEW, VALUE_TABLE);
+        m.insn(Opcodes.DUP);
+        if (expr.items.isEmpty()) m.methodInsnSpecial(VALUE_TABLE, "<init>", "V");
+        else {
+            m.ldcInsn(expr.items.size());
+            m.methodInsnSpecial(VALUE_TABLE, "<init>", "I", "V");
+        }
+
+        // Add items
+        for (int i = 0; i < expr.items.size(); i++) {
+            m.insn(Opcodes.DUP);
+            compile(expr.items.get(i));
+            m.methodInsn(VALUE_TABLE, "add", VALUE_D, "V");
+        }
+
+        // Set values
+        for (Token key : expr.values.keySet()) {
+            m.insn(Opcodes.DUP);
+            emitPropertyCache(key, key.lexeme);
+            m.insn(Opcodes.SWAP);
+            compile(expr.values.get(key));
+            propertySet();
+        }
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        Local temp = null;
+        if (expr.name != null && expr.object instanceof Expr.Variable && resolveLocal(((Expr.Variable) expr.object).name) == null) {
+            temp = hoisted.get(((Expr.Variable) expr.object).name.lexeme + "." + expr.name.lexeme);
+        }
+
+        if (temp != null) {
+            Label lDone = new Label();
+
+            getLocal(temp);
+            m.insn(Opcodes.DUP);
+            m.jumpInsn(Opcodes.IFNONNULL, lDone);
+            m.insn(Opcodes.POP);
+            compile(expr.object);
+            toTable();
+            get(expr);
+            m.insn(Opcodes.DUP);
+            setLocal(temp);
+            m.label(lDone);
+            return;
+        }
+
+        compile(expr.object);
+        toTable();
+        get(expr);
+    }
+
+    private void get(Expr.Get expr) { // table
+        if (expr.name != null) {
+            emitPropertyCache(expr, expr.name.lexeme);
+            m.insn(Opcodes.SWAP);
+            propertyGet();
+        } else {
+            compileKey(expr.key);
+            tableGet(expr.key);
+        }
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        compile(expr.object);
+        toTable();
+        m.insn(Opcodes.DUP);
+
+        if (expr.operator.type == Token.Type.Equal) { // =
+            if (expr.name != null) {
+                emitPropertyCache(expr, expr.name.lexeme);
+                m.insn(Opcodes.SWAP);
+                compile(expr.value);
+                propertySet();
+            } else {
+                compileKey(expr.key);
+                compile(expr.value);
+                tableSet(expr.key);
+            }
+        } else { // ++, --, +=, -=, *=, /=, %=
+            // Get value
+            m.insn(Opcodes.DUP);
+            if (expr.name != null) {
+                emitPropertyCache(expr, expr.name.lexeme);
+                m.insn(Opcodes.SWAP);
+                propertyGet();
+            } else {
+                compileKey(expr.key);
+                tableGet(expr.key);
+            }
+
+            // Compute value
+            if (expr.operator.type == Token.Type.PlusPlus || expr.operator.type == Token.Type.MinusMinus) { // ++, --
+                toNumber();
+                m.insn(Opcodes.DCONST_1);
+                m.insn(expr.operator.type == Token.Type.PlusPlus ? Opcodes.DADD : Opcodes.DSUB);
+                emitNumber();
+            } else { // +=, -=, *=, /=, %=
+                Label lValue = new Label();
+                Label lExit = new Label();
+
+                m.insn(Opcodes.DUP);
+                isNumber();
+                m.jumpInsn(Opcodes.IFEQ, lValue);
+
+                // Number
+                m.methodInsn(VALUE, "toNumber", "D");
+                compileNumber(expr.value);
+                switch (expr.operator.type) {
+                    case PlusEqual:       m.insn(Opcodes.DADD); break;
+                    case MinusEqual:      m.insn(Opcodes.DSUB); break;
+                    case StarEqual:       m.insn(Opcodes.DMUL); break;
+                    case SlashEqual:      m.insn(Opcodes.DDIV); break;
+                    case PercentageEqual: m.insn(Opcodes.DREM); break;
+                }
+                emitNumber();
+                m.jumpInsn(Opcodes.GOTO, lExit);
+
+                m.label(lValue); // Anything else goes through metamethods
+                compileBoxed(expr.value);
+                arithmetic(expr.operator.type);
+
+                m.label(lExit);
+            }
+
+            // Set value
+            if (expr.name != null) {
+                emitPropertyCache(expr, expr.name.lexeme); // table, value, cache
+                m.insn(Opcodes.DUP_X2); // cache, table, value, cache
+                m.insn(Opcodes.POP); // cache, table, value
+                propertySet();
+            } else {
+                compileKey(expr.key); // table, value, key
+                if (isNumber(expr.key)) {
+                    m.insn(Opcodes.DUP2_X1);
+                    m.insn(Opcodes.POP2);
+                } else m.insn(Opcodes.SWAP); // table, key, value
+                tableSet(expr.key);
+            }
+        }
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        Analyzer.Inline inline = inlineTarget(expr);
+
+        if (inline != null) compileInline(expr, inline);
+        else compileCall(expr);
+    }
+
+    private Analyzer.Inline inlineTarget(Expr.Call expr) {
+        // Inlined bodies don't inline further calls so functions calling each other can't expand forever
+        if (inlining || !(expr.callee instanceof Expr.Variable)) return null;
+
+        Token name = ((Expr.Variable) expr.callee).name;
+        if (resolveLocal(name) != null) return null;
+
+        // Tiered units have no class guarded calls could check for
+        Analyzer.Inline inline = analysis.inline(name.lexeme);
+        if (inline != null && inline.guarded && unit.tiered) return null;
+        return inline != null && inline.function.args.size() == expr.args.size() ? inline : null;
+    }
+
+    private void compileInline(Expr.Call expr, Analyzer.Inline inline) {
+        Label lCall = new Label();
+        Label lExit = new Label();
+
+        // Globals that get assigned again are checked against the class the function compiles to
+        if (inline.guarded) {
+            compile(expr.callee);
+            m.typeInsn(Opcodes.INSTANCEOF, functionClass(inline.function));
+            m.jumpInsn(Opcodes.IFEQ, lCall);
+        }
+
+        // Arguments are evaluated in order into temporaries standing in for the parameters
+        ArrayList<Local> temps = new ArrayList<>(expr.args.size());
+        for (int i = 0; i < expr.args.size(); i++) compile(expr.args.get(i));
+        for (int i = 0; i < expr.args.size(); i++) temps.add(addLocal(new Token(Token.Type.Identifier, "@" + i, line), false));
+        for (int i = temps.size() - 1; i >= 0; i--) setLocal(temps.get(i));
+
+        // The body can only see its parameters and globals, same as when it is called
+        ArrayList<Local> enclosingLocals = locals;
+        locals = new ArrayList<>();
+        for (int i = 0; i < temps.size(); i++) locals.add(new Local(inline.function.args.get(i), scopeDepth, temps.get(i).index, false, false));
+        inlining = true;
+        compile(inline.value);
+        inlining = false;
+        locals = enclosingLocals;
+        locals.removeAll(temps);
+
+        if (inline.guarded) {
+            m.jumpInsn(Opcodes.GOTO, lExit);
+            m.label(lCall);
+            compileCall(expr);
+            m.label(lExit);
+        }
+    }
+
+    private void compileCall(Expr.Call expr) {
+        // Method calls keep the receiver on the stack and pass it as self
+        if (expr.callee instanceof Expr.Get) {
+            compile(((Expr.Get) expr.callee).object);
+            toTable();
+            m.insn(Opcodes.DUP); // self, self
+            get((Expr.Get) expr.callee); // self, callee
+            m.insn(Opcodes.SWAP); // callee, self
+        } else {
+            compile(expr.callee); // callee
+            m.insn(Opcodes.ACONST_NULL); // callee, self
+        }
+        int line = this.line;
+
+        // Type and argument count checks are done by the call site when it links
+        Handle bootstrap = new Handle(Opcodes.H_INVOKESTATIC, LINKER, "bootstrap", LINKER_BOOTSTRAP_D, false);
+        Object[] bootstrapArgs = new Object[] {file, line, expr.args.size()};
+
+        if (expr.args.size() <= Value.Function.MAX_FIXED_ARGS) {
+            for (int i = 0; i < expr.args.size(); i++) compile(expr.args.get(i)); // callee, self, a0, ...
+            m.invokeDynamicInsn("call", bootstrap, bootstrapArgs, fixedArgsDescriptor(expr.args.size(), VALUE_D, VALUE_TABLE_D));
+        } else {
+            newValueArray(expr.args.size());
+            for (int i = 0; i < expr.args.size(); i++) valueArrayAdd(i, expr.args.get(i)); // callee, self, args
+            m.invokeDynamicInsn("call", bootstrap, bootstrapArgs, VALUE_D, VALUE_TABLE_D, "[" + VALUE_D, VALUE_D);
+        }
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        String name = functionName;
+        functionName = null;
+
+        if (lazy && !isInlined(expr, name)) {
+            // The template is handed to the call site through its unit when it links
+            Template template = new Template(unit, expr, name, scopeDepth, null);
+            unit.lazy.put(template.className, template);
+
+            m.varInsn(Opcodes.ALOAD, 0);
+            m.fieldInsn(Opcodes.GETFIELD, c.name, "globals", GLOBALS_D);
+            m.varInsn(Opcodes.ALOAD, 0);
+            m.fieldInsn(Opcodes.GETFIELD, c.name, "file", STRING_D);
+            Handle bootstrap = new Handle(Opcodes.H_INVOKESTATIC, LAZY_FUNCTION, "bootstrap", LAZY_FUNCTION_BOOTSTRAP_D, false);
+            m.invokeDynamicInsn("function", bootstrap, new Object[] {template.className}, GLOBALS_D, STRING_D, VALUE_FUNCTION_D);
+            return;
+        }
+
+        String className = functionClass(expr);
+        compileFunction(expr, name, className);
+
+        m.typeInsn(Opcodes.NEW, className);
+        m.insn(Opcodes.DUP);
+        m.methodInsnSpecial(className, "<init>", "V");
+        m.insn(Opcodes.DUP);
+        m.varInsn(Opcodes.ALOAD, 0);
+        m.fieldInsn(Opcodes.GETFIELD, c.name, "globals", GLOBALS_D);
+        m.fieldInsn(Opcodes.PUTFIELD, className, "globals", GLOBALS_D);
+        m.insn(Opcodes.DUP);
+        m.varInsn(Opcodes.ALOAD, 0);
+        m.fieldInsn(Opcodes.GETFIELD, c.name, "file", STRING_D);
+        m.fieldInsn(Opcodes.PUTFIELD, className, "file", STRING_D);
+    }
+
+    private void compileFunction(Expr.Function expr, String name, String className) {
+        // Temporaries of enclosing loops belong to another method
+        HashMap<String, Local> enclosingHoisted = hoisted;
+        hoisted = new HashMap<>();
+        boolean enclosingBoxed = boxed;
+        boxed = false;
+
+        ClassBuilder enclosingC = c;
+        c = new ClassBuilder(className, VALUE_FUNCTION, null);
+
+        c.field("globals", GLOBALS_D);
+        c.field("file", STRING_D);
+        if (className.equals(lazyClass)) {
+            c.field("stub", VALUE_FUNCTION_D);
+            {   // constructor(Globals globals, String file, Value.Function stub)
+                MethodBuilder m = c.method("<init>", GLOBALS_D, STRING_D, VALUE_FUNCTION_D, "V");
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.methodInsnSpecial(VALUE_FUNCTION, "<init>", "V");
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.varInsn(Opcodes.ALOAD, 1);
+                m.fieldInsn(Opcodes.PUTFIELD, c.name, "globals", GLOBALS_D);
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.varInsn(Opcodes.ALOAD, 2);
+                m.fieldInsn(Opcodes.PUTFIELD, c.name, "file", STRING_D);
+
+                // Functions created without a LazyFunction stand in for themselves
+                Label lEnd = new Label();
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.fieldInsn(Opcodes.PUTFIELD, c.name, "stub", VALUE_FUNCTION_D);
+                m.varInsn(Opcodes.ALOAD, 3);
+                m.jumpInsn(Opcodes.IFNULL, lEnd);
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.varInsn(Opcodes.ALOAD, 3);
+                m.fieldInsn(Opcodes.PUTFIELD, c.name, "stub", VALUE_FUNCTION_D);
+                m.label(lEnd);
+                m.insn(Opcodes.RETURN);
+                m.end();
+            }
+        } else {   // constructor
+            MethodBuilder m = c.method("<init>", "V");
+            m.callSuper();
+            m.insn(Opcodes.RETURN);
+            m.end();
+        }
+        {   // int argCount()
+            MethodBuilder m = c.method("argCount", "I");
+            m.ldcInsn(expr.args.size());
+            m.insn(Opcodes.IRETURN);
+            m.end();
+        }
+        // Loops share the locals of the interpreter through the argument array
+        boolean osr = osrLoop != null && className.equals(lazyClass);
+
+        if (expr.args.size() <= Value.Function.MAX_FIXED_ARGS && !osr) {
+            {   // Value runN(Table self, Value a0, ...)
+                ArrayList<Local> enclosingLocals = locals;
+                int enclosingFirstLocal = firstLocal;
+                String enclosingTailCallName = tailCallName;
+                int enclosingTailCallArgCount = tailCallArgCount;
+                Label enclosingLTailCall = lTailCall;
+                boolean enclosingHasSelf = hasSelf;
+                boolean enclosingHasArgs = hasArgs;
+                locals = new ArrayList<>();
+                firstLocal = Math.max(3, 2 + expr.args.size());
+                tailCallName = name;
+                tailCallArgCount = expr.args.size();
+                lTailCall = new Label();
+                hasSelf = true;
+                hasArgs = false;
+                MethodBuilder enclosingM = m;
+                m = c.method("run" + expr.args.size(), fixedArgsDescriptor(expr.args.size(), VALUE_TABLE_D));
+                for (int i = 0; i < expr.args.size(); i++) locals.add(new Local(expr.args.get(i), scopeDepth, 2 + i, false, false));
+                m.label(lTailCall);
+                compile(expr.stmts);
+                emitNull();
+                m.insn(Opcodes.ARETURN);
+                m.end();
+                m = enclosingM;
+                locals = enclosingLocals;
+                firstLocal = enclosingFirstLocal;
+                tailCallName = enclosingTailCallName;
+                tailCallArgCount = enclosingTailCallArgCount;
+                lTailCall = enclosingLTailCall;
+                hasSelf = enclosingHasSelf;
+                hasArgs = enclosingHasArgs;
+            }
+            {   // Value run(Table self, Value[] args)
+                MethodBuilder m = c.method("run", VALUE_TABLE_D, "[" + VALUE_D, VALUE_D);
+                m.varInsn(Opcodes.ALOAD, 0);
+                m.varInsn(Opcodes.ALOAD, 1);
+                for (int i = 0; i < expr.args.size(); i++) {
+                    // Missing arguments are null when called from Java with a shorter array
+                    Label lMissing = new Label();
+                    Label lNext = new Label();
+                    m.varInsn(Opcodes.ALOAD, 2);
+                    m.insn(Opcodes.ARRAYLENGTH);
+                    m.ldcInsn(i);
+                    m.jumpInsn(Opcodes.IF_ICMPLE, lMissing);
+                    m.varInsn(Opcodes.ALOAD, 2);
+                    m.ldcInsn(i);
+                    m.insn(Opcodes.AALOAD);
+                    m.jumpInsn(Opcodes.GOTO, lNext);
+                    m.label(lMissing);
+                    m.fieldInsn(Opcodes.GETSTATIC, VALUE, "NULL", VALUE_NULL_D);
+                    m.label(lNext);
+                }
+                m.methodInsn(c.name, "run" + expr.args.size(), fixedArgsDescriptor(expr.args.size(), VALUE_TABLE_D));
+                m.insn(Opcodes.ARETURN);
+                m.end();
+            }
+        } else {   // Value run(Table self, Value[] args)
+            ArrayList<Local> enclosingLocals = locals;
+            int enclosingFirstLocal = firstLocal;
+            String enclosingTailCallName = tailCallName;
+            boolean enclosingHasSelf = hasSelf;
+            boolean enclosingHasArgs = hasArgs;
+            locals = new ArrayList<>();
+            firstLocal = 3;
+            tailCallName = null;
+            hasSelf = true;
+            hasArgs = true;
+            MethodBuilder enclosingM = m;
+            m = c.method("run", VALUE_TABLE_D, "[" + VALUE_D, VALUE_D);
+            for (int i = 0; i < expr.args.size(); i++) addLocalFunctionArgument(expr.args.get(i), i);
+            compile(expr.stmts);
+            // Loops return null when they finish without returning
+            if (osr) m.insn(Opcodes.ACONST_NULL);
+            else emitNull();
+            m.insn(Opcodes.ARETURN);
+            m.end();
+            m = enclosingM;
+            locals = enclosingLocals;
+            firstLocal = enclosingFirstLocal;
+            tailCallName = enclosingTailCallName;
+            hasSelf = enclosingHasSelf;
+            hasArgs = enclosingHasArgs;
+        }
+        c.end();
+
+        functions.put(c.name.replace('/', '.'), c.build());
+        c = enclosingC;
+        hoisted = enclosingHoisted;
+        boxed = enclosingBoxed;
+    }
+
+    private boolean isInlined(Expr.Function expr, String name) {
+        // Guarded inlined calls check for the class of the function so it has to exist up front
+        Analyzer.Inline inline = name != null && !unit.tiered ? analysis.inline(name) : null;
+        return inline != null && inline.function == expr;
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {
+        m.varInsn(Opcodes.ALOAD, 1);
+    }
+
+    // Unboxed arithmetic
+
+    private boolean isArithmetic(Token.Type type) {
+        return type == Token.Type.Plus || type == Token.Type.Minus || type == Token.Type.Star || type == Token.Type.Slash || type == Token.Type.Percentage;
+    }
+
+    private boolean isArithmetic(Expr expr) {
+        if (expr instanceof Expr.Grouping) return isArithmetic(((Expr.Grouping) expr).expr);
+        return expr instanceof Expr.Binary && isArithmetic(((Expr.Binary) expr).operator.type);
+    }
+
+    private boolean isComparison(Token.Type type) {
+        return type == Token.Type.Greater || type == Token.Type.GreaterEqual || type == Token.Type.Less || type == Token.Type.LessEqual;
+    }
+
+    // Returns true if the expression can only ever evaluate to a number
+    private boolean isNumber(Expr expr) {
+        if (expr instanceof Expr.Grouping) return isNumber(((Expr.Grouping) expr).expr);
+        if (expr instanceof Expr.Literal) return ((Expr.Literal) expr).value instanceof Double;
+        if (expr instanceof Expr.Unary) return ((Expr.Unary) expr).operator.type == Token.Type.Minus;
+        if (expr instanceof Expr.Binary) return isArithmetic(((Expr.Binary) expr).operator.type) && isNumber(((Expr.Binary) expr).left);
+        if (expr instanceof Expr.Variable) {
+            Local local = resolveLocal(((Expr.Variable) expr).name);
+            return local != null && local.number;
+        }
+        if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            if (assign.operator.type == Token.Type.Equal) return isNumber(assign.value);
+            if (assign.operator.type == Token.Type.PlusPlus || assign.operator.type == Token.Type.MinusMinus) return true;
+
+            Local local = resolveLocal(assign.name);
+            return local != null && local.number;
+        }
+        return false;
+    }
+
+    // Leaves a raw double on the stack, if the expression evaluates to something else than a number then it jumps to lValue with the value on the stack
+    private void compileDouble(Expr expr, Label lValue) {
+        line = expr.line;
+
+        if (expr instanceof Expr.Grouping) compileDouble(((Expr.Grouping) expr).expr, lValue);
+        else if (expr instanceof Expr.Literal && ((Expr.Literal) expr).value instanceof Double) m.ldcInsn(((Expr.Literal) expr).value);
+        else if (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == Token.Type.Minus) {
+            compileNumber(((Expr.Unary) expr).right);
+            m.insn(Opcodes.DNEG);
+        }
+        else if (expr instanceof Expr.Binary && isArithmetic(((Expr.Binary) expr).operator.type) && !boxed) compileArithmetic((Expr.Binary) expr, lValue);
+        else if (expr instanceof Expr.Variable && isNumber(expr)) m.varInsn(Opcodes.DLOAD, resolveLocal(((Expr.Variable) expr).name).index);
+        else {
+            compile(expr);
+            if (!isNumber(expr)) {
+                m.insn(Opcodes.DUP);
+                isNumber();
+                m.jumpInsn(Opcodes.IFEQ, lValue);
+            }
+            m.methodInsn(VALUE, "toNumber", "D");
+        }
+    }
+
+    // Leaves a raw double on the stack, throws an error if the expression does not evaluate to a number
+    private void compileNumber(Expr expr) {
+        if (isNumber(expr)) {
+            compileDouble(expr, null);
+            return;
+        }
+        if (!isArithmetic(expr)) {
+            // The runtime check is small enough to be inlined by the JIT, an inline one would only make the caller bigger
+            compile(expr);
+            toNumber();
+            return;
+        }
+
+        Label lValue = new Label();
+        Label lExit = new Label();
+
+        compileDouble(expr, lValue);
+        m.jumpInsn(Opcodes.GOTO, lExit);
+
+        m.label(lValue);
+        toNumber();
+
+        m.label(lExit);
+    }
+
+    private void compileBoxed(Expr expr) {
+        boolean enclosingBoxed = boxed;
+        boxed = true;
+        compile(expr);
+        boxed = enclosingBoxed;
+    }
+
+    private void compileArithmetic(Expr.Binary expr, Label lValue) {
+        Label lLeftNumber = new Label();
+        Label lLeftValue = new Label();
+        Label lExit = new Label();
+
+        compileDouble(expr.left, lLeftValue);
+
+        m.label(lLeftNumber); // Number
+        compileNumber(expr.right);
+        switch (expr.operator.type) {
+            case Plus:       m.insn(Opcodes.DADD); break;
+            case Minus:      m.insn(Opcodes.DSUB); break;
+            case Star:       m.insn(Opcodes.DMUL); break;
+            case Slash:      m.insn(Opcodes.DDIV); break;
+            case Percentage: m.insn(Opcodes.DREM); break;
+        }
+
+        if (isNumber(expr.left)) return;
+        m.jumpInsn(Opcodes.GOTO, lExit);
+
+        // Left side was not a raw number, only arithmetic can still have returned a number from a metamethod
+        Label lTable = new Label();
+
+        m.label(lLeftValue);
+        if (isArithmetic(expr.left)) {
+            m.insn(Opcodes.DUP);
+            isNumber();
+            m.jumpInsn(Opcodes.IFEQ, lTable);
+            m.methodInsn(VALUE, "toNumber", "D");
+            m.jumpInsn(Opcodes.GOTO, lLeftNumber);
+        }
+
+        m.label(lTable); // Anything else goes through metamethods
+        compileBoxed(expr.right);
+        arithmetic(expr.operator.type);
+        m.jumpInsn(Opcodes.GOTO, lValue);
+
+        m.label(lExit);
+    }
+
+    // Conditions
+
+    // Jumps to label if the truthiness of the expression is equal to jumpIf
+    private void branch(Expr expr, boolean jumpIf, Label label) {
+        line = expr.line;
+
+        if (expr instanceof Expr.Grouping) branch(((Expr.Grouping) expr).expr, jumpIf, label);
+        else if (expr instanceof Expr.Literal && (((Expr.Literal) expr).value == null || ((Expr.Literal) expr).value instanceof Boolean)) {
+            boolean value = ((Expr.Literal) expr).value != null && (boolean) ((Expr.Literal) expr).value;
+            if (value == jumpIf) m.jumpInsn(Opcodes.GOTO, label);
+        }
+        else if (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == Token.Type.Bang) branch(((Expr.Unary) expr).right, !jumpIf, label);
+        else if (expr instanceof Expr.Logical) {
+            Expr.Logical logical = (Expr.Logical) expr;
+            boolean and = logical.operator.type == Token.Type.And;
+
+            if (and != jumpIf) { // Both sides can jump directly
+                branch(logical.left, jumpIf, label);
+                branch(logical.right, jumpIf, label);
+            } else {
+                Label lSkip = new Label();
+                branch(logical.left, !jumpIf, lSkip);
+                branch(logical.right, jumpIf, label);
+                m.label(lSkip);
+            }
+        }
+        else if (expr instanceof Expr.Binary && isComparison(((Expr.Binary) expr).operator.type)) {
+            Expr.Binary binary = (Expr.Binary) expr;
+            Token.Type type = binary.operator.type;
+
+            compileNumber(binary.left);
+            compileNumber(binary.right);
+            m.insn(type == Token.Type.Greater || type == Token.Type.GreaterEqual ? Opcodes.DCMPL : Opcodes.DCMPG);
+
+            switch (type) {
+                case Greater:      m.jumpInsn(jumpIf ? Opcodes.IFGT : Opcodes.IFLE, label); break;
+                case GreaterEqual: m.jumpInsn(jumpIf ? Opcodes.IFGE : Opcodes.IFLT, label); break;
+                case Less:         m.jumpInsn(jumpIf ? Opcodes.IFLT : Opcodes.IFGE, label); break;
+                case LessEqual:    m.jumpInsn(jumpIf ? Opcodes.IFLE : Opcodes.IFGT, label); break;
+            }
+        }
+        else if (expr instanceof Expr.Binary && (((Expr.Binary) expr).operator.type == Token.Type.EqualEqual || ((Expr.Binary) expr).operator.type == Token.Type.BangEqual)) {
+            Expr.Binary binary = (Expr.Binary) expr;
+
+            compile(binary.left);
+            compile(binary.right);
+            valueEquals();
+            if (binary.operator.type == Token.Type.BangEqual) jumpIf = !jumpIf;
+            m.jumpInsn(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, label);
+        }
+        else {
+            compile(expr);
+            isTruthy();
+            m.jumpInsn(jumpIf ? Opcodes.IFNE : Opcodes.IFEQ, label);
+        }
+    }
+
+    private void emitCondition(Expr expr) {
+        Label lFalse = new Label();
+        Label lExit = new Label();
+
+        branch(expr, false, lFalse);
+        emitBool(true);
+        m.jumpInsn(Opcodes.GOTO, lExit);
+
+        m.label(lFalse);
+        emitBool(false);
+
+        m.label(lExit);
+    }
+
+    // Helper methods
+
+    private void arithmetic(Token.Type operator) { // left, right
+        switch (operator) {
+            case Plus:       case PlusEqual:       arithmeticMetamethod("add"); break;
+            case Minus:      case MinusEqual:      arithmeticMetamethod("subtract"); break;
+            case Star:       case StarEqual:       arithmeticMetamethod("multiply"); break;
+            case Slash:      case SlashEqual:      arithmeticMetamethod("divide"); break;
+            case Percentage: case PercentageEqual: arithmeticMetamethod("remainder"); break;
+        }
+    }
+    private void arithmeticMetamethod(String operation) { // left, right
+        getFile();
+        m.ldcInsn(line);
+        m.methodStaticInsn(KOA_RUNTIME, operation, VALUE_D, VALUE_D, STRING_D, "I", VALUE_D);
+    }
+
+    private String functionClass(Expr.Function expr) {
+        String name = unit.functionClasses.get(expr);
+
+        if (name == null) {
+            name = unit.name + "$Function" + unit.functionClasses.size();
+            unit.functionClasses.put(expr, name);
+        }
+
+        return name;
+    }
+
+    private void newValueArray(int size) {
+        m.ldcInsn(size);
+        m.typeInsn(Opcodes.ANEWARRAY, VALUE);
+    }
+    private void valueArrayAdd(int i, Expr expr) {
+        m.insn(Opcodes.DUP);
+        m.ldcInsn(i);
+        compile(expr);
+        m.insn(Opcodes.AASTORE);
+    }
+    private String[] fixedArgsDescriptor(int argCount, String... leading) {
+        // Leading parameters followed by argCount values, returning a value
+        String[] descriptors = new String[leading.length + argCount + 1];
+        System.arraycopy(leading, 0, descriptors, 0, leading.length);
+        for (int i = leading.length; i < descriptors.length; i++) descriptors[i] = VALUE_D;
+        return descriptors;
+    }
+
+    private Local addLocal(Token name, boolean number) {
+        int index = firstLocal;
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            Local last = locals.get(i);
+            if (!last.functionArgument && last.index >= firstLocal) {
+                index = last.index + (last.number ? 2 : 1);
+                break;
+            }
+        }
+
+        Local local = new Local(name, scopeDepth, index, false, number);
+        locals.add(local);
+        return local;
+    }
+    private void addLocalFunctionArgument(Token name, int i) {
+        Local local = new Local(name, scopeDepth, i, true, false);
+        locals.add(local);
+    }
+    private void setLocal(Local local) {
+        if (!local.functionArgument) m.varInsn(Opcodes.ASTORE, local.index);
+        else {
+            m.varInsn(Opcodes.ALOAD, 2); // value, array
+            m.insn(Opcodes.SWAP); // array, value
+            m.ldcInsn(local.index); // array, value, index
+            m.insn(Opcodes.SWAP); // array, index, value
+            m.insn(Opcodes.AASTORE); // -/-
+        }
+    }
+    private void getLocal(Local local) {
+        if (local.number) {
+            m.varInsn(Opcodes.DLOAD, local.index);
+            emitNumber();
+        }
+        else if (!local.functionArgument) m.varInsn(Opcodes.ALOAD, local.index);
+        else {
+            m.varInsn(Opcodes.ALOAD, 2);
+            m.ldcInsn(local.index);
+            m.insn(Opcodes.AALOAD);
+        }
+    }
+    private Local resolveLocal(Token name) {
+        return resolveLocal(name.lexeme);
+    }
+    private Local resolveLocal(String name) {
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            Local local = locals.get(i);
+            if (local.name.lexeme.equals(name)) return local;
+        }
+
+        return null;
+    }
+
+    private void setGlobal(String name) { // value
+        getGlobalSlots(); // value, slots
+        m.insn(Opcodes.SWAP); // slots, value
+        m.ldcInsn(globals.indexOf(Symbol.of(name))); // slots, value, index
+        m.insn(Opcodes.SWAP); // slots, index, value
+        m.insn(Opcodes.AASTORE); // -/-
+    }
+    private void getGlobal(String name) {
+        getGlobalSlots(); // slots
+        m.ldcInsn(globals.indexOf(Symbol.of(name))); // slots, index
+        m.insn(Opcodes.AALOAD); // value
+    }
+    private void getGlobalSlots() {
+        m.varInsn(Opcodes.ALOAD, 0);
+        m.fieldInsn(Opcodes.GETFIELD, c.name, "globals", GLOBALS_D);
+        m.fieldInsn(Opcodes.GETFIELD, GLOBALS, "slots", "[" + VALUE_D);
+    }
+
+    private void emitNull() {
+        m.fieldInsn(Opcodes.GETSTATIC, VALUE, "NULL", VALUE_NULL_D);
+    }
+
+    private void emitBool(boolean value) {
+        m.fieldInsn(Opcodes.GETSTATIC, VALUE, value ? "TRUE" : "FALSE", VALUE_BOOL_D);
+    }
+
+    private void emitNumber(double value) {
+        // Number literals are created once when the class is initialized
+        String name = c.constant(value);
+        if (name == null) {
+            name = c.constant(value, VALUE_NUMBER_D);
+            MethodBuilder init = c.staticInit();
+            init.ldcInsn(value);
+            init.methodStaticInsn(VALUE_NUMBER, "valueOf", "D", VALUE_NUMBER_D);
+            init.fieldInsn(Opcodes.PUTSTATIC, c.name, name, VALUE_NUMBER_D);
+        }
+        m.fieldInsn(Opcodes.GETSTATIC, c.name, name, VALUE_NUMBER_D);
+    }
+    private void emitString(String value) {
+        // String literals are created once when the class is initialized, they are read only so sharing them can't be observed
+        String name = c.constant(value);
+        if (name == null) {
+            name = c.constant(value, STRING_TABLE_D);
+            MethodBuilder init = c.staticInit();
+            init.ldcInsn(value);
+            init.methodStaticInsn(STRING_TABLE, "literal", STRING_D, STRING_TABLE_D);
+            init.fieldInsn(Opcodes.PUTSTATIC, c.name, name, STRING_TABLE_D);
+        }
+        m.fieldInsn(Opcodes.GETSTATIC, c.name, name, STRING_TABLE_D);
+    }
+
+    private void emitNumber() {
+        m.methodStaticInsn(VALUE_NUMBER, "valueOf", "D", VALUE_NUMBER_D);
+    }
+
+    private void isNumber() {
+        m.methodInsn(VALUE, "isNumber", "Z");
+    }
+    private void isTable() {
+        m.methodInsn(VALUE, "isTable", "Z");
+    }
+
+    private void toNumber() {
+        getFile();
+        m.ldcInsn(line);
+        m.methodStaticInsn(KOA_RUNTIME, "toNumber", VALUE_D, STRING_D, "I", "D");
+    }
+    private void toTable() {
+        Label lOk = new Label();
+
+        m.insn(Opcodes.DUP);
+        isTable();
+        m.jumpInsn(Opcodes.IFGT, lOk);
+        wrongTypeError("Table");
+
+        m.label(lOk);
+        m.methodInsn(VALUE, "toTable", VALUE_TABLE_D);
+    }
+
+    private void isTruthy() {
+        m.methodInsn(VALUE, "isTruthy", "Z");
+    }
+    private void valueEquals() {
+        m.methodInsn(VALUE, "equals", OBJECT_D, "Z");
+    }
+
+    private void compileKey(Expr key) {
+        // Number keys are passed as raw doubles so that they can index the array part without boxing
+        if (isNumber(key)) compileDouble(key, null);
+        else compile(key);
+    }
+    private void tableSet(Expr key) {
+        m.methodInsn(VALUE_TABLE, "set", isNumber(key) ? "D" : VALUE_D, VALUE_D, "V");
+    }
+    private void tableGet(Expr key) {
+        m.methodInsn(VALUE_TABLE, "getOrNull", isNumber(key) ? "D" : VALUE_D, VALUE_D);
+    }
+
+    private String symbolConstant(String key) {
+        // Keys are interned once when the class is initialized
+        Symbol symbol = Symbol.of(key);
+        String name = c.constant(symbol);
+        if (name == null) {
+            name = c.constant(symbol, SYMBOL_D);
+            MethodBuilder init = c.staticInit();
+            init.ldcInsn(key);
+            init.methodStaticInsn(SYMBOL, "of", STRING_D, SYMBOL_D);
+            init.fieldInsn(Opcodes.PUTSTATIC, c.name, name, SYMBOL_D);
+        }
+        return name;
+    }
+
+    private void emitPropertyCache(Object site, String key) {
+        // Every access site gets its own inline cache
+        String name = c.constant(site);
+        if (name == null) {
+            String symbol = symbolConstant(key);
+            name = c.constant(site, PROPERTY_CACHE_D);
+            MethodBuilder init = c.staticInit();
+            init.typeInsn(Opcodes.NEW, PROPERTY_CACHE);
+            init.insn(Opcodes.DUP);
+            init.fieldInsn(Opcodes.GETSTATIC, c.name, symbol, SYMBOL_D);
+            init.methodInsnSpecial(PROPERTY_CACHE, "<init>", SYMBOL_D, "V");
+            init.fieldInsn(Opcodes.PUTSTATIC, c.name, name, PROPERTY_CACHE_D);
+        }
+        m.fieldInsn(Opcodes.GETSTATIC, c.name, name, PROPERTY_CACHE_D);
+    }
+    private void propertySet() { // cache, table, value
+        m.methodInsn(PROPERTY_CACHE, "set", VALUE_TABLE_D, VALUE_D, "V");
+    }
+    private void propertyGet() { // cache, table
+        m.methodInsn(PROPERTY_CACHE, "get", VALUE_TABLE_D, VALUE_D);
+    }
+
+    private void getFile() {
+        m.varInsn(Opcodes.ALOAD, 0);
+        m.fieldInsn(Opcodes.GETFIELD, c.name, "file", STRING_D);
+    }
+
+    private void wrongTypeError(String expected) { // value
+        m.ldcInsn(expected);
+        getFile();
+        m.ldcInsn(line);
+        m.methodStaticInsn(KOA_RUNTIME, "wrongType", VALUE_D, STRING_D, STRING_D, "I", ERROR_D);
+        m.insn(Opcodes.ATHROW);
+    }
+
+    private void beginScope() {
+        scopeDepth++;
+    }
+    private void endScope() {
+        scopeDepth--;
+        while (locals.size() > 0 && locals.get(locals.size() - 1).scopeDepth > scopeDepth) locals.remove(locals.size() - 1);
+    }
+
+    private void compile(ArrayList<Stmt> stmts) {
+        int size = 0;
+        for (int i = 0; i < stmts.size(); i++) size += splitter.info(stmts.get(i)).size;
+
+        if (size <= Splitter.MAX_SIZE || localSlots() > MAX_CHUNK_SLOTS) {
+            for (int i = 0; i < stmts.size(); i++) compile(stmts.get(i));
+            return;
+        }
+
+        // Runs of statements that can be moved are grouped into chunks, the rest stays here and splits its own blocks
+        ArrayList<Stmt> chunk = new ArrayList<>();
+        int chunkSize = 0;
+        boolean chunkReturns = false;
+        Local chunkWrite = null;
+
+        for (int i = 0; i < stmts.size(); i++) {
+            Stmt stmt = stmts.get(i);
+            Splitter.Info info = splitter.info(stmt);
+            ArrayList<Local> writes = movedWrites(stmt, info);
+
+            if (writes == null) {
+                compileChunk(chunk, chunkSize, chunkWrite);
+                chunk.clear();
+                chunkSize = 0;
+                chunkReturns = false;
+                chunkWrite = null;
+                compile(stmt);
+                continue;
+            }
+
+            // A chunk gives back either a return value or the new value of one local
+            Local write = writes.isEmpty() ? null : writes.get(0);
+            boolean fits = chunkSize + info.size <= Splitter.CHUNK_SIZE && (write == null || chunkWrite == null || write == chunkWrite) && (write == null || !chunkReturns) && (chunkWrite == null || !info.returns);
+
+            if (!fits && !chunk.isEmpty()) {
+                compileChunk(chunk, chunkSize, chunkWrite);
+                chunk.clear();
+                chunkSize = 0;
+                chunkReturns = false;
+                chunkWrite = null;
+            }
+
+            chunk.add(stmt);
+            chunkSize += info.size;
+            chunkReturns |= info.returns;
+            if (write != null) chunkWrite = write;
+        }
+
+        compileChunk(chunk, chunkSize, chunkWrite);
+    }
+
+    // Enclosing locals the statement assigns or null if it has to stay in the current method
+    private ArrayList<Local> movedWrites(Stmt stmt, Splitter.Info info) {
+        // Locals declared here are used by the following statements
+        if (info.escapes || (stmt instanceof Stmt.Var && scopeDepth > 0)) return null;
+
+        ArrayList<Local> writes = new ArrayList<>(1);
+        for (String name : info.assigned) {
+            // Array arguments are shared with the chunk
+            Local local = resolveLocal(name);
+            if (local != null && !local.functionArgument) writes.add(local);
+        }
+
+        return writes.size() > 1 || (writes.size() == 1 && info.returns) ? null : writes;
+    }
+
+    private void compileChunk(ArrayList<Stmt> stmts, int size, Local write) {
+        if (stmts.isEmpty()) return;
+
+        // Not worth a call
+        if (size < Splitter.MIN_CHUNK_SIZE) {
+            for (int i = 0; i < stmts.size(); i++) compile(stmts.get(i));
+            return;
+        }
+
+        boolean returns = false;
+        for (int i = 0; i < stmts.size(); i++) returns |= splitter.info(stmts.get(i)).returns;
+
+        // chunkN(Table self, Value[] args, locals...) returns the written local, the return value or null when nothing was returned
+        String name = "chunk" + chunkCount++;
+        ArrayList<String> descriptors = new ArrayList<>();
+        descriptors.add(VALUE_TABLE_D);
+        descriptors.add("[" + VALUE_D);
+        for (int i = 0; i < locals.size(); i++) {
+            if (!locals.get(i).functionArgument) descriptors.add(locals.get(i).number ? "D" : VALUE_D);
+        }
+        if (write != null) descriptors.add(write.number ? "D" : VALUE_D);
+        else descriptors.add(returns ? VALUE_D : "V");
+        String[] descriptor = descriptors.toArray(new String[0]);
+
+        // Call
+        m.varInsn(Opcodes.ALOAD, 0);
+        if (hasSelf) m.varInsn(Opcodes.ALOAD, 1);
+        else m.insn(Opcodes.ACONST_NULL);
+        if (hasArgs) m.varInsn(Opcodes.ALOAD, 2);
+        else m.insn(Opcodes.ACONST_NULL);
+        for (int i = 0; i < locals.size(); i++) {
+            Local local = locals.get(i);
+            if (!local.functionArgument) m.varInsn(local.number ? Opcodes.DLOAD : Opcodes.ALOAD, local.index);
+        }
+        m.methodInsnSpecial(c.name, name, descriptor);
+
+        if (write != null) m.varInsn(write.number ? Opcodes.DSTORE : Opcodes.ASTORE, write.index);
+        else if (returns) {
+            Label lNext = new Label();
+            m.insn(Opcodes.DUP);
+            m.jumpInsn(Opcodes.IFNULL, lNext);
+            m.insn(Opcodes.ARETURN);
+            m.label(lNext);
+            m.insn(Opcodes.POP);
+        }
+
+        // Body, array arguments stay in the array and other locals are copied after it
+        MethodBuilder enclosingM = m;
+        ArrayList<Local> enclosingLocals = locals;
+        HashMap<String, Local> enclosingHoisted = hoisted;
+        int enclosingFirstLocal = firstLocal;
+        String enclosingTailCallName = tailCallName;
+        boolean enclosingHasSelf = hasSelf;
+        boolean enclosingHasArgs = hasArgs;
+
+        HashMap<Local, Local> copies = new HashMap<>();
+        locals = new ArrayList<>(enclosingLocals.size());
+        int index = 3;
+        for (int i = 0; i < enclosingLocals.size(); i++) {
+            Local local = enclosingLocals.get(i);
+
+            if (local.functionArgument) locals.add(local);
+            else {
+                Local copy = new Local(local.name, local.scopeDepth, index, false, local.number);
+                index += local.number ? 2 : 1;
+                locals.add(copy);
+                copies.put(local, copy);
+            }
+        }
+        hoisted = new HashMap<>();
+        for (Map.Entry<String, Local> entry : enclosingHoisted.entrySet()) hoisted.put(entry.getKey(), copies.get(entry.getValue()));
+        firstLocal = 3;
+        tailCallName = null;
+        hasSelf = true;
+        hasArgs = true;
+
+        m = c.privateMethod(name, descriptor);
+        for (int i = 0; i < stmts.size(); i++) compile(stmts.get(i));
+        if (write != null) {
+            Local copy = copies.get(write);
+            m.varInsn(copy.number ? Opcodes.DLOAD : Opcodes.ALOAD, copy.index);
+            m.insn(copy.number ? Opcodes.DRETURN : Opcodes.ARETURN);
+        } else if (returns) {
+            m.insn(Opcodes.ACONST_NULL);
+            m.insn(Opcodes.ARETURN);
+        } else m.insn(Opcodes.RETURN);
+        m.end();
+
+        m = enclosingM;
+        locals = enclosingLocals;
+        hoisted = enclosingHoisted;
+        firstLocal = enclosingFirstLocal;
+        tailCallName = enclosingTailCallName;
+        hasSelf = enclosingHasSelf;
+        hasArgs = enclosingHasArgs;
+    }
+
+    private int localSlots() {
+        int slots = 0;
+        for (int i = 0; i < locals.size(); i++) {
+            if (!locals.get(i).functionArgument) slots += locals.get(i).number ? 2 : 1;
+        }
+        return slots;
+    }
+
+    private void compile(Stmt stmt) {
+        if (stmt != null) {
+            line = stmt.line;
+            stmt.accept(this);
+        }
+    }
+    private void compile(Expr expr) {
+        if (expr != null) {
+            line = expr.line;
+            expr.accept(this);
+        }
+    }
+    private void compileDiscarded(Expr expr) {
+        if (expr instanceof Expr.Assign) {
+            line = expr.line;
+            assign((Expr.Assign) expr, false);
+        } else {
+            compile(expr);
+            m.insn(Opcodes.POP);
+        }
+    }
+
+    // Function literal that is compiled when it is first called, see LazyFunction
+    // In tiered units it is interpreted until it gets hot, hot loops of the interpreter get one too
+    public static class Template {
+        public static final int HOT_INVOCATIONS = 100;
+        public static final int HOT_BACK_EDGES = 1000;
+
+        private static final int COLD = 0, COMPILING = 1, HOT = 2;
+
+        private static final MethodHandle CREATE_LAZY;
+        private static final MethodHandle SAME;
+
+        static {
+            try {
+                CREATE_LAZY = MethodHandles.publicLookup().findConstructor(LazyFunction.class, MethodType.methodType(void.class, Template.class, Globals.class, String.class));
+                SAME = MethodHandles.lookup().findStatic(Template.class, "same", MethodType.methodType(boolean.class, Globals.class, Globals.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Unit unit;
+        final Expr.Function function;
+        private final String name;
+        final int scopeDepth;
+        private final Stmt loop;
+        private final String className;
+
+        // Calls and loop iterations run by the interpreter, racy so threads may lose counts but only the state decides promotion
+        int invocations, backEdges;
+        // Only the thread moving it out of COLD compiles the template, it is HOT once that thread instantiated it
+        private final AtomicInteger state = new AtomicInteger(COLD);
+
+        // Constructor of the class compiled last, the global slots it was compiled against and the globals they were last checked with
+        private Constructor<?> constructor;
+        private String[] layout;
+        private Globals linked;
+        private int compiles;
+
+        // Site creating the function, it creates LazyFunctions until the body is compiled
+        private MutableCallSite site;
+        private MethodHandle createLazy;
+
+        private Template(Unit unit, Expr.Function function, String name, int scopeDepth, Stmt loop) {
+            this.unit = unit;
+            this.function = function;
+            this.name = name;
+            this.scopeDepth = scopeDepth;
+            this.loop = loop;
+            className = unit.name + (loop != null ? "$Loop" : "$Lazy") + unit.templates++;
+        }
+
+        public int argCount() {
+            return function.args.size();
+        }
+
+        // True for the thread that has to compile the template, other threads keep interpreting it until it was compiled
+        // Units that aren't tiered can't be interpreted, their callers wait for the compiling thread in instantiate
+        public boolean hot() {
+            if (!unit.tiered) return true;
+
+            int state = this.state.get();
+            if (state == HOT) return true;
+            if (state == COMPILING || (invocations < HOT_INVOCATIONS && backEdges < HOT_BACK_EDGES)) return false;
+            return this.state.compareAndSet(COLD, COMPILING);
+        }
+
+        // Runs the body in the interpreter, called by LazyFunction while the function is cold
+        public Value interpret(Globals globals, String file, Value.Table self, Value... args) {
+            invocations++;
+            return new Interpreter(unit, globals, file, this, self).run(args);
+        }
+
+        // Called by the interpreter, once compiled for the globals the function is created compiled
+        Value.Function create(Globals globals, String file) {
+            Constructor<?> constructor;
+            synchronized (unit) {
+                constructor = linked == globals ? this.constructor : null;
+            }
+            return constructor != null ? newInstance(constructor, globals, file, null) : new LazyFunction(this, globals, file);
+        }
+
+        public CallSite link(MethodType type) {
+            synchronized (unit) {
+                // Threads reaching the site at the same time may all bootstrap it, they get the same site
+                if (site != null) return site;
+
+                createLazy = MethodHandles.insertArguments(CREATE_LAZY, 0, this).asType(type);
+                site = new MutableCallSite(createLazy);
+                if (constructor != null) patch(linked);
+                return site;
+            }
+        }
+
+        public Value.Function instantiate(Value.Function stub, Globals globals, String file) {
+            Constructor<?> constructor;
+
+            synchronized (unit) {
+                if (globals != linked && (this.constructor == null || !globals.link(layout))) {
+                    // The old class stays loaded so a class compiled against other globals needs a new name
+                    String className = compiles == 0 ? this.className : this.className + "_" + compiles;
+                    compiles++;
+
+                    Compiler compiler = new Compiler(this, className, globals);
+                    try {
+                        this.constructor = define(unit.loader(), compiler.functions, className).getConstructor(Globals.class, String.class, Value.Function.class);
+                    } catch (NoSuchMethodException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    layout = globals.layout();
+                }
+                if (globals != linked && site != null) patch(globals);
+                linked = globals;
+                constructor = this.constructor;
+                state.set(HOT);
+            }
+
+            return newInstance(constructor, globals, file, stub);
+        }
+
+        private static Value.Function newInstance(Constructor<?> constructor, Globals globals, String file, Value.Function stub) {
+            try {
+                return (Value.Function) constructor.newInstance(globals, file, stub);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void patch(Globals globals) {
+            // Functions created for the same globals from now on are created compiled
+            try {
+                MethodHandle create = MethodHandles.publicLookup().unreflectConstructor(constructor);
+                create = MethodHandles.insertArguments(create, 2, (Object) null).asType(site.type());
+                MethodHandle test = MethodHandles.dropArguments(SAME.bindTo(globals), 1, String.class);
+                site.setTarget(MethodHandles.guardWithTest(test, create, createLazy));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static boolean same(Globals expected, Globals globals) {
+            return globals == expected;
+        }
+    }
+
+    // Called by the call sites creating lazy functions when they link, their classes were defined by the loader of the unit
+    // Lazy classes are never stored in the cache or a jar, the AST of the body only exists in the process that compiled them
+    public static Template template(Class<?> caller, String className) {
+        ClassLoader loader = caller.getClassLoader();
+        Template template = loader instanceof UnitLoader ? ((UnitLoader) loader).unit.lazy.get(className) : null;
+        if (template == null) throw new Error(null, 0, "Can't create lazy function " + className.replace('/', '.') + ", its body was not compiled by this process.");
+        return template;
+    }
+
+    // Shared by the compilers of a unit so functions compiled later get names that are still unique in it
+    static class Unit {
+        public final String file;
+        public final String name;
+        public final Analyzer.Result analysis;
+        public final IdentityHashMap<Expr.Function, String> functionClasses = new IdentityHashMap<>();
+        public int templates;
+        // Templates of lazy function literals by class name, the sites creating them look them up when they link
+        public final Map<String, Template> lazy = new ConcurrentHashMap<>();
+        private UnitLoader loader;
+
+        // Tiered units are interpreted, the interpreter keeps one template per function literal and loop so their counters add up
+        public final boolean tiered;
+        private final IdentityHashMap<Object, Template> interpreted = new IdentityHashMap<>();
+        // String literals the interpreter evaluated, shared by every evaluation like the constants of compiled classes
+        private final Map<Expr.Literal, StringTable> literals = new ConcurrentHashMap<>();
+
+        public Unit(String file, String name, Analyzer.Result analysis, boolean tiered) {
+            this.file = file;
+            this.name = name;
+            this.analysis = analysis;
+            this.tiered = tiered;
+        }
+
+        // Classes compiled later are defined next to the ones compiled first, they can only be unloaded together
+        public synchronized KoaClassLoader loader() {
+            if (loader == null) loader = new UnitLoader(this);
+            return loader;
+        }
+
+        public synchronized Template function(Expr.Function function, String name, int scopeDepth) {
+            Template template = interpreted.get(function);
+            if (template == null) {
+                template = new Template(this, function, name, scopeDepth, null);
+                interpreted.put(function, template);
+            }
+            return template;
+        }
+
+        public StringTable literal(Expr.Literal literal) {
+            StringTable value = literals.get(literal);
+            if (value == null) {
+                value = StringTable.literal((String) literal.value);
+                StringTable existing = literals.putIfAbsent(literal, value);
+                if (existing != null) value = existing;
+            }
+            return value;
+        }
+
+        // The loop is compiled as a function taking the locals visible to it
+        public synchronized Template loop(Stmt loop, Token[] locals, int localCount, int scopeDepth) {
+            Template template = interpreted.get(loop);
+            if (template == null) {
+                ArrayList<Token> args = new ArrayList<>(Arrays.asList(locals).subList(0, localCount));
+                ArrayList<Stmt> stmts = new ArrayList<>(1);
+                stmts.add(loop);
+
+                template = new Template(this, new Expr.Function(loop.line, args, stmts), null, scopeDepth, loop);
+                interpreted.put(loop, template);
+            }
+            return template;
+        }
+    }
+
+    private static class UnitLoader extends KoaClassLoader {
+        static {
+            // Registration isn't inherited, without it threads running the same unit would serialize on the loader resolving classes
+            registerAsParallelCapable();
+        }
+
+        public final Unit unit;
+
+        public UnitLoader(Unit unit) {
+            super(Compiler.class.getClassLoader());
+            this.unit = unit;
+        }
+    }
+
+    private static class Local {
+        public final Token name;
+        public final int scopeDepth;
+        public final int index;
+        public final boolean functionArgument;
+        public final boolean number;
+
+        public Local(Token name, int scopeDepth, int index, boolean functionArgument, boolean number) {
+            this.name = name;
+            this.scopeDepth = scopeDepth;
+            this.index = index;
+            this.functionArgument = functionArgument;
+            this.number = number;
+        }
+    }
+}
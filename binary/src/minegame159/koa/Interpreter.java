@@ -0,0 +1,422 @@
+package minegame159.koa;
+
+import minegame159.koa.ast.Analyzer;
+import minegame159.koa.ast.Expr;
+import minegame159.koa.ast.Stmt;
+import minegame159.koa.tables.StringTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+// First tier of tiered units, walks the tree of cold code and hands functions and loops to the compiler once they get hot
+public class Interpreter implements Stmt.Visitor, Expr.Visitor {
+    private enum Jump {
+        None,
+        Break,
+        Continue,
+        Return
+    }
+
+    private final Compiler.Unit unit;
+    private final Globals globals;
+    private final String file;
+
+    // Function being run and the table it was called on, both are null for the top level of a script
+    private final Compiler.Template function;
+    private final Value.Table self;
+
+    private int scopeDepth;
+    private Token[] names = new Token[8];
+    private Value[] values = new Value[8];
+    private int size;
+
+    // Value of the last evaluated expression, holds the returned value while jump is Return
+    private Value value;
+    private Jump jump = Jump.None;
+
+    // Global the next function literal is assigned to, same as in the compiler
+    private String functionName;
+    private int line;
+
+    Interpreter(Compiler.Unit unit, Globals globals, String file, Compiler.Template function, Value.Table self) {
+        this.unit = unit;
+        this.globals = globals;
+        this.file = file;
+        this.function = function;
+        this.self = self;
+        if (function != null) scopeDepth = function.scopeDepth;
+    }
+
+    // Runnable of a script that is interpreted until its functions and loops get hot
+    public static Runnable script(String file, ArrayList<Stmt> stmts, Analyzer.Result analysis) {
+        return new Script(new Compiler.Unit(file, Compiler.unitName(file), analysis, true), stmts);
+    }
+
+    Value run(Value[] args) {
+        // Missing arguments are null like in compiled functions
+        Expr.Function function = this.function.function;
+        for (int i = 0; i < function.args.size(); i++) declare(function.args.get(i), i < args.length ? args[i] : Value.NULL);
+
+        execute(function.stmts);
+        return jump == Jump.Return ? value : Value.NULL;
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        int mark = beginScope();
+        execute(stmt.stmts);
+        endScope(mark);
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        evaluate(stmt.expr);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        if (scopeDepth == 0 && stmt.initializer instanceof Expr.Function) functionName = stmt.name.lexeme;
+        Value value = stmt.initializer != null ? evaluate(stmt.initializer) : Value.NULL;
+
+        if (scopeDepth == 0) globals.set(stmt.name.lexeme, value);
+        else declare(stmt.name, value);
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        if (evaluate(stmt.condition).isTruthy()) execute(stmt.thenBranch);
+        else execute(stmt.elseBranch);
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        Compiler.Template loop = unit.loop(stmt, names, size, scopeDepth);
+
+        while (evaluate(stmt.condition).isTruthy()) {
+            execute(stmt.body);
+            if (jump == Jump.Break || jump == Jump.Return) break;
+            jump = Jump.None;
+
+            if (backEdge(loop)) {
+                compiledLoop(loop);
+                break;
+            }
+        }
+
+        if (jump == Jump.Break) jump = Jump.None;
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        int depth = scopeDepth;
+        int mark = beginScope();
+
+        // The compiled loop starts after the initializer so its locals are passed in
+        execute(stmt.initializer);
+        Compiler.Template loop = unit.loop(stmt, names, size, depth);
+
+        while (stmt.condition == null || evaluate(stmt.condition).isTruthy()) {
+            execute(stmt.body);
+            if (jump == Jump.Break || jump == Jump.Return) break;
+            jump = Jump.None;
+            if (stmt.increment != null) evaluate(stmt.increment);
+
+            if (backEdge(loop)) {
+                compiledLoop(loop);
+                break;
+            }
+        }
+
+        if (jump == Jump.Break) jump = Jump.None;
+        endScope(mark);
+    }
+
+    private boolean backEdge(Compiler.Template loop) {
+        if (function != null) function.backEdges++;
+        loop.backEdges++;
+        // Checked first, the thread hot returns true for has to compile the loop
+        return loop.argCount() == size && loop.hot();
+    }
+
+    // Runs the remaining iterations in the class compiled for the loop, locals it assigned are copied back
+    private void compiledLoop(Compiler.Template loop) {
+        Value[] locals = Arrays.copyOf(values, size);
+        Value value = loop.instantiate(null, globals, file).run(self, locals);
+        System.arraycopy(locals, 0, values, 0, size);
+
+        if (value != null) {
+            this.value = value;
+            jump = Jump.Return;
+        }
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {
+        jump = Jump.Break;
+    }
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {
+        jump = Jump.Continue;
+    }
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        value = stmt.value != null ? evaluate(stmt.value) : Value.NULL;
+        jump = Jump.Return;
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        Token.Type type = expr.operator.type;
+
+        if (type == Token.Type.EqualEqual || type == Token.Type.BangEqual) {
+            Value left = evaluate(expr.left);
+            Value right = evaluate(expr.right);
+            value = Value.Bool.valueOf(left.equals(right) == (type == Token.Type.EqualEqual));
+        }
+        else if (type == Token.Type.Greater || type == Token.Type.GreaterEqual || type == Token.Type.Less || type == Token.Type.LessEqual) {
+            double left = toNumber(evaluate(expr.left));
+            double right = toNumber(evaluate(expr.right));
+
+            switch (type) {
+                case Greater:      value = Value.Bool.valueOf(left > right); break;
+                case GreaterEqual: value = Value.Bool.valueOf(left >= right); break;
+                case Less:         value = Value.Bool.valueOf(left < right); break;
+                case LessEqual:    value = Value.Bool.valueOf(left <= right); break;
+            }
+        }
+        else value = arithmetic(type, evaluate(expr.left), expr.right);
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        evaluate(expr.expr);
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {
+        if (expr.value == null) value = Value.NULL;
+        else if (expr.value instanceof Boolean) value = Value.Bool.valueOf((boolean) expr.value);
+        else if (expr.value instanceof Double) value = Value.Number.valueOf((double) expr.value);
+        else if (expr.value instanceof String) value = unit.literal(expr);
+    }
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        boolean left = evaluate(expr.left).isTruthy();
+
+        if (expr.operator.type == Token.Type.And) value = Value.Bool.valueOf(left && evaluate(expr.right).isTruthy());
+        else value = Value.Bool.valueOf(left || evaluate(expr.right).isTruthy());
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        if (expr.operator.type == Token.Type.Minus) value = Value.Number.valueOf(-toNumber(evaluate(expr.right)));
+        else if (expr.operator.type == Token.Type.Bang) value = Value.Bool.valueOf(!evaluate(expr.right).isTruthy());
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {
+        int local = resolveLocal(expr.name);
+        value = local >= 0 ? values[local] : globals.getOrNull(expr.name.lexeme);
+    }
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        int local = resolveLocal(expr.name);
+        Value value;
+
+        if (expr.operator.type == Token.Type.Equal) { // =
+            if (local < 0 && expr.value instanceof Expr.Function) functionName = expr.name.lexeme;
+            value = evaluate(expr.value);
+        } else value = compound(expr.operator.type, local >= 0 ? values[local] : globals.getOrNull(expr.name.lexeme), expr.value); // ++, --, +=, -=, *=, /=, %=
+
+        if (local >= 0) values[local] = value;
+        else globals.set(expr.name.lexeme, value);
+        this.value = value;
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        Value.Table table = expr.items.isEmpty() ? new Value.Table() : new Value.Table(expr.items.size());
+
+        for (int i = 0; i < expr.items.size(); i++) table.add(evaluate(expr.items.get(i)));
+        for (Token key : expr.values.keySet()) table.set(key.lexeme, evaluate(expr.values.get(key)));
+
+        value = table;
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        value = get(toTable(evaluate(expr.object)), expr);
+    }
+
+    private Value get(Value.Table table, Expr.Get expr) {
+        if (expr.name != null) return table.getOrNull(expr.name.lexeme);
+        return table.getOrNull(evaluate(expr.key));
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        Value.Table table = toTable(evaluate(expr.object));
+        Value key = expr.name == null ? evaluate(expr.key) : null;
+        Value value;
+
+        if (expr.operator.type == Token.Type.Equal) value = evaluate(expr.value); // =
+        else value = compound(expr.operator.type, key != null ? table.getOrNull(key) : table.getOrNull(expr.name.lexeme), expr.value); // ++, --, +=, -=, *=, /=, %=
+
+        if (key != null) table.set(key, value);
+        else table.set(expr.name.lexeme, value);
+
+        // Like the compiled code the expression evaluates to the table
+        this.value = table;
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        // Method calls pass the receiver as self
+        Value.Table self = null;
+        Value callee;
+
+        if (expr.callee instanceof Expr.Get) {
+            self = toTable(evaluate(((Expr.Get) expr.callee).object));
+            callee = get(self, (Expr.Get) expr.callee);
+        } else callee = evaluate(expr.callee);
+        int line = this.line;
+
+        Value[] args = new Value[expr.args.size()];
+        for (int i = 0; i < args.length; i++) args[i] = evaluate(expr.args.get(i));
+
+        // Same checks as the linker does for compiled calls
+        Value.Function function;
+        if (callee.isFunction()) function = callee.toFunction();
+        else if (callee.isTable() && callee.toTable().mtContainsCall()) function = callee.toTable().mtGetCall();
+        else throw KoaRuntime.wrongType(callee, "Function or Table", file, line);
+
+        if (function.argCount() >= 0 && function.argCount() != args.length) throw KoaRuntime.wrongNumberOfArguments(function.argCount(), args.length, file, line);
+
+        value = function.run(self, args);
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        String name = functionName;
+        functionName = null;
+
+        value = unit.function(expr, name, scopeDepth).create(globals, file);
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {
+        value = self;
+    }
+
+    // Helper methods
+
+    private Value arithmetic(Token.Type type, Value left, Expr rightExpr) {
+        // Anything else than a number on the left goes through metamethods
+        if (!left.isNumber()) {
+            Value right = evaluate(rightExpr);
+
+            switch (type) {
+                case Plus:       case PlusEqual:       return KoaRuntime.add(left, right, file, line);
+                case Minus:      case MinusEqual:      return KoaRuntime.subtract(left, right, file, line);
+                case Star:       case StarEqual:       return KoaRuntime.multiply(left, right, file, line);
+                case Slash:      case SlashEqual:      return KoaRuntime.divide(left, right, file, line);
+                default:                               return KoaRuntime.remainder(left, right, file, line);
+            }
+        }
+
+        double a = left.toNumber();
+        double b = toNumber(evaluate(rightExpr));
+
+        switch (type) {
+            case Plus:       case PlusEqual:       return Value.Number.valueOf(a + b);
+            case Minus:      case MinusEqual:      return Value.Number.valueOf(a - b);
+            case Star:       case StarEqual:       return Value.Number.valueOf(a * b);
+            case Slash:      case SlashEqual:      return Value.Number.valueOf(a / b);
+            default:                               return Value.Number.valueOf(a % b);
+        }
+    }
+
+    private Value compound(Token.Type type, Value value, Expr right) {
+        if (type == Token.Type.PlusPlus) return Value.Number.valueOf(toNumber(value) + 1);
+        if (type == Token.Type.MinusMinus) return Value.Number.valueOf(toNumber(value) - 1);
+        return arithmetic(type, value, right);
+    }
+
+    private double toNumber(Value value) {
+        if (!value.isNumber()) throw KoaRuntime.wrongType(value, "Number", file, line);
+        return value.toNumber();
+    }
+    private Value.Table toTable(Value value) {
+        if (!value.isTable()) throw KoaRuntime.wrongType(value, "Table", file, line);
+        return value.toTable();
+    }
+
+    private void declare(Token name, Value value) {
+        if (size >= values.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        names[size] = name;
+        values[size++] = value;
+    }
+    private int resolveLocal(Token name) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (names[i].lexeme.equals(name.lexeme)) return i;
+        }
+
+        return -1;
+    }
+
+    private int beginScope() {
+        scopeDepth++;
+        return size;
+    }
+    private void endScope(int mark) {
+        scopeDepth--;
+        Arrays.fill(values, mark, size, null);
+        size = mark;
+    }
+
+    private void execute(ArrayList<Stmt> stmts) {
+        for (int i = 0; i < stmts.size() && jump == Jump.None; i++) execute(stmts.get(i));
+    }
+    private void execute(Stmt stmt) {
+        if (stmt != null) {
+            line = stmt.line;
+            stmt.accept(this);
+        }
+    }
+    private Value evaluate(Expr expr) {
+        line = expr.line;
+        expr.accept(this);
+        return value;
+    }
+
+    // Doesn't depend on the slots of its globals, linking only sets them
+    public static class Script implements Runnable {
+        public static final String[] GLOBALS = {};
+
+        public Globals globals;
+        private final Compiler.Unit unit;
+        private final ArrayList<Stmt> stmts;
+
+        private Script(Compiler.Unit unit, ArrayList<Stmt> stmts) {
+            this.unit = unit;
+            this.stmts = stmts;
+        }
+
+        @Override
+        public void run() {
+            new Interpreter(unit, globals, unit.file, null, null).execute(stmts);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package minegame159.koa;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+// Compiles scripts ahead of time into a jar that runs the first one with KoaLauncher and only contains the runtime
+public class JarCompiler {
+    public static boolean compile(String jar, List<String> scripts, int optimizationLevel) {
+        ScriptLoader loader = new ScriptLoader();
+        loader.optimizationLevel = optimizationLevel;
+
+        // Every script is compiled against fresh globals, the same ones it runs with
+        LinkedHashMap<String, byte[]> classes = new LinkedHashMap<>();
+        StringBuilder index = new StringBuilder();
+        Set<String> compiled = new HashSet<>();
+        for (int i = 0; i < scripts.size(); i++) {
+            String file = Utils.resolvePath(scripts.get(i));
+            if (compiled.contains(file)) continue;
+            if (!Utils.fileExists(file)) {
+                System.out.println("File '" + file + "' doesn't exist.");
+                return false;
+            }
+
+            LinkedHashMap<String, byte[]> unit = loader.compile(file, Utils.readFile(file), new Globals());
+            if (unit == null) return false;
+
+            compiled.add(file);
+            index.append(file).append('\t').append(unit.keySet().iterator().next()).append('\n');
+            classes.putAll(unit);
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, KoaLauncher.class.getName());
+
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(new File(jar).toPath()), manifest)) {
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) write(out, entry.getKey().replace('.', '/') + ".class", entry.getValue());
+            write(out, PrecompiledModuleLoader.INDEX, index.toString().getBytes(StandardCharsets.UTF_8));
+            copyRuntime(out);
+        } catch (IOException | URISyntaxException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    // Copies the classes of the runtime the compiler is running with, the compiler and ASM are not needed to run the jar
+    private static void copyRuntime(JarOutputStream out) throws IOException, URISyntaxException {
+        Path runtime = new File(Globals.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toPath();
+
+        if (Files.isDirectory(runtime)) {
+            try (Stream<Path> files = Files.walk(runtime)) {
+                for (Iterator<Path> it = files.iterator(); it.hasNext();) {
+                    Path file = it.next();
+                    String name = runtime.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (Files.isRegularFile(file) && !name.startsWith("META-INF/")) write(out, name, Files.readAllBytes(file));
+                }
+            }
+        } else {
+            try (JarFile jar = new JarFile(runtime.toFile())) {
+                for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements();) {
+                    JarEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || entry.getName().startsWith("META-INF/")) continue;
+
+                    out.putNextEntry(new JarEntry(entry.getName()));
+                    copy(jar, entry, out);
+                    out.closeEntry();
+                }
+            }
+        }
+    }
+
+    private static void copy(JarFile jar, JarEntry entry, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        try (InputStream in = jar.getInputStream(entry)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) out.write(buffer, 0, read);
+        }
+    }
+
+    private static void write(JarOutputStream out, String name, byte[] bytes) throws IOException {
+        out.putNextEntry(new JarEntry(name));
+        out.write(bytes);
+        out.closeEntry();
+    }
+}
@@ -0,0 +1,56 @@
+package minegame159.koa;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class KoaMain {
+    private static final String USAGE = "Usage: koa [-O<level>] [-cache=<directory>] [-preload] [-lazy] [-tiered] [-stats] <script>\n       koa compile [-O<level>] -o <jar> <script> [<required script>...]";
+
+    public static void main(String[] args) throws IOException {
+        boolean compile = args.length > 0 && args[0].equals("compile");
+        ScriptLoader loader = new ScriptLoader();
+        String jar = null;
+
+        int i = compile ? 1 : 0;
+        boolean preload = false;
+        boolean stats = false;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].startsWith("-O")) {
+                try {
+                    loader.optimizationLevel = Integer.parseInt(args[i].substring(2));
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid optimization level: " + args[i]);
+                    return;
+                }
+            }
+            else if (compile && args[i].equals("-o") && i + 1 < args.length) jar = args[++i];
+            else if (!compile && args[i].startsWith("-cache=")) loader.cache = new ClassCache(new File(args[i].substring(7)));
+            else if (!compile && args[i].equals("-preload")) preload = true;
+            else if (!compile && args[i].equals("-lazy")) loader.lazy = true;
+            else if (!compile && args[i].equals("-tiered")) loader.tiered = true;
+            else if (!compile && args[i].equals("-stats")) stats = true;
+            else break;
+        }
+
+        if (compile) {
+            if (jar != null && i < args.length) {
+                if (!JarCompiler.compile(jar, new ArrayList<>(Arrays.asList(args).subList(i, args.length)), loader.optimizationLevel)) System.exit(1);
+            }
+            else System.out.println(USAGE);
+        }
+        else if (args.length - i == 1) {
+            if (preload) loader.preload(args[i]);
+
+            Globals globals = new Globals();
+            globals.loader = loader;
+            globals.run(args[i]);
+            if (stats && loader.cache != null) {
+                if (ClassCache.BUILD == null) System.err.println("Class cache: disabled, no build hash on the class path");
+                else System.err.println("Class cache: " + loader.cache.hits() + " hits, " + loader.cache.misses() + " misses");
+            }
+        }
+        else System.out.println(USAGE);
+    }
+}
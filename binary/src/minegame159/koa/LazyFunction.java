@@ -0,0 +1,77 @@
+package minegame159.koa;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.ConstantCallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// Stands in for a function literal until it is first called, the body is then compiled into its own class and calls are forwarded to it
+// In tiered units the body is interpreted until the template gets hot, target is null until then
+public class LazyFunction extends Value.Function {
+    private final Compiler.Template template;
+    private final Globals globals;
+    private final String file;
+    private volatile Value.Function function;
+
+    public LazyFunction(Compiler.Template template, Globals globals, String file) {
+        this.template = template;
+        this.globals = globals;
+        this.file = file;
+    }
+
+    // Bootstrap for function literals compiled lazily, the site is patched to create the compiled function once it exists
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, String template) {
+        try {
+            return Compiler.template(lookup.lookupClass(), template).link(type);
+        } catch (Error e) {
+            // Thrown from here it would escape the script wrapped in a BootstrapMethodError, the site throws it when run instead
+            MethodHandle error = MethodHandles.throwException(type.returnType(), Error.class).bindTo(e);
+            return new ConstantCallSite(MethodHandles.dropArguments(error, 0, type.parameterArray()));
+        }
+    }
+
+    @Override
+    public Value.Function target() {
+        Value.Function function = this.function;
+        if (function == null && template.hot()) this.function = function = template.instantiate(this, globals, file);
+        return function;
+    }
+
+    @Override
+    public int argCount() {
+        return template.argCount();
+    }
+
+    @Override
+    public Value run(Value.Table table, Value... args) {
+        Value.Function function = target();
+        return function != null ? function.run(table, args) : template.interpret(globals, file, table, args);
+    }
+
+    @Override
+    public Value run0(Value.Table table) {
+        Value.Function function = target();
+        return function != null ? function.run0(table) : template.interpret(globals, file, table);
+    }
+    @Override
+    public Value run1(Value.Table table, Value a0) {
+        Value.Function function = target();
+        return function != null ? function.run1(table, a0) : template.interpret(globals, file, table, a0);
+    }
+    @Override
+    public Value run2(Value.Table table, Value a0, Value a1) {
+        Value.Function function = target();
+        return function != null ? function.run2(table, a0, a1) : template.interpret(globals, file, table, a0, a1);
+    }
+    @Override
+    public Value run3(Value.Table table, Value a0, Value a1, Value a2) {
+        Value.Function function = target();
+        return function != null ? function.run3(table, a0, a1, a2) : template.interpret(globals, file, table, a0, a1, a2);
+    }
+    @Override
+    public Value run4(Value.Table table, Value a0, Value a1, Value a2, Value a3) {
+        Value.Function function = target();
+        return function != null ? function.run4(table, a0, a1, a2, a3) : template.interpret(globals, file, table, a0, a1, a2, a3);
+    }
+}
@@ -125,7 +125,7 @@ public class Lexer {
                             advance();
                             advance();
                         } else return errorToken("Unterminated multi-line comment.");
-                    }
+                    } else return null;
                     break;
                 default: return null;
             }
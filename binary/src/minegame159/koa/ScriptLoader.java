@@ -0,0 +1,161 @@
+package minegame159.koa;
+
+import minegame159.koa.ast.Analyzer;
+import minegame159.koa.ast.Optimizer;
+import minegame159.koa.ast.Parser;
+import minegame159.koa.ast.Requires;
+import minegame159.koa.ast.Validator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Compiles scripts from source when they are run
+public class ScriptLoader implements ModuleLoader {
+    public int optimizationLevel = Optimizer.FULL;
+    // Compiled classes are stored here when set
+    public ClassCache cache;
+    // Function bodies are compiled when first called, classes compiled like this can't be stored in the cache
+    public boolean lazy;
+    // Scripts are interpreted and only functions and loops that get hot are compiled, nothing is stored in the cache
+    public boolean tiered;
+
+    // Scripts compiled by preload that didn't run yet
+    private final Map<String, Runnable> preloaded = new ConcurrentHashMap<>();
+    private final Set<String> visited = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Runnable load(String file, Globals globals) {
+        // Preloaded scripts were compiled against fresh globals, which is what require runs them with
+        Runnable runnable = preloaded.remove(file);
+        if (runnable != null && globals.link(runnable)) return runnable;
+
+        if (!Utils.fileExists(file)) return null;
+        String source = Utils.readFile(file);
+
+        if (tiered) {
+            Parser.Result parseResult = Parser.parse(file, source);
+            parseResult.printErrors();
+            if (parseResult.hadError()) return null;
+
+            runnable = interpret(file, parseResult, true);
+            return runnable != null && globals.link(runnable) ? runnable : null;
+        }
+
+        String key = null;
+        if (cache != null && ClassCache.BUILD != null) {
+            key = ClassCache.key(file, source, optimizationLevel);
+
+            LinkedHashMap<String, byte[]> classes = cache.get(key);
+            if (classes != null) {
+                runnable = Compiler.load(classes, file);
+                if (runnable != null && globals.link(runnable)) return runnable;
+            }
+        }
+
+        LinkedHashMap<String, byte[]> classes = compile(file, source, globals);
+        if (classes == null) return null;
+        if (key != null && !lazy) cache.put(key, classes);
+
+        runnable = Compiler.load(classes, file);
+        return runnable != null && globals.link(runnable) ? runnable : null;
+    }
+
+    // Compiles the script and every script it requires with a literal path in parallel so running them only has to link
+    public void preload(String file) {
+        ForkJoinPool.commonPool().invoke(new Preload(Utils.resolvePath(file)));
+    }
+
+    // Compiles against the global slots of globals, returns null if the script has errors
+    public LinkedHashMap<String, byte[]> compile(String file, String source, Globals globals) {
+        Parser.Result parseResult = Parser.parse(file, source);
+        parseResult.printErrors();
+        if (parseResult.hadError()) return null;
+
+        return compile(file, parseResult, globals, true);
+    }
+
+    private LinkedHashMap<String, byte[]> compile(String file, Parser.Result parseResult, Globals globals, boolean printErrors) {
+        Analyzer.Result analyzeResult = analyze(file, parseResult, printErrors);
+        if (analyzeResult == null) return null;
+
+        return Compiler.compile(file, parseResult.stmts, analyzeResult, globals, lazy);
+    }
+
+    private Runnable interpret(String file, Parser.Result parseResult, boolean printErrors) {
+        Analyzer.Result analyzeResult = analyze(file, parseResult, printErrors);
+        if (analyzeResult == null) return null;
+
+        return Interpreter.script(file, parseResult.stmts, analyzeResult);
+    }
+
+    private Analyzer.Result analyze(String file, Parser.Result parseResult, boolean printErrors) {
+        Validator.Result validateResult = Validator.validate(file, parseResult.stmts);
+        if (printErrors) {
+            validateResult.printErrors();
+            validateResult.printWarnings();
+        }
+        if (validateResult.hadError()) return null;
+
+        Optimizer.optimize(parseResult.stmts, optimizationLevel);
+
+        return Analyzer.analyze(parseResult.stmts);
+    }
+
+    private class Preload extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String file;
+
+        Preload(String file) {
+            this.file = file;
+        }
+
+        @Override
+        protected void compute() {
+            if (!visited.add(file) || !Utils.fileExists(file)) return;
+            String source = Utils.readFile(file);
+
+            // Scripts with errors are skipped, they are compiled again when they run and report the errors in order
+            Parser.Result parseResult = Parser.parse(file, source);
+            if (parseResult.hadError()) return;
+
+            ArrayList<Preload> requires = new ArrayList<>();
+            for (String path : Requires.find(parseResult.stmts)) {
+                Preload preload = new Preload(Utils.resolvePath(file + "/../" + path));
+                preload.fork();
+                requires.add(preload);
+            }
+
+            if (tiered) {
+                Runnable runnable = interpret(file, parseResult, false);
+                if (runnable != null) preloaded.put(file, runnable);
+            }
+            else preloadCompiled(source, parseResult);
+
+            for (int i = 0; i < requires.size(); i++) requires.get(i).join();
+        }
+
+        private void preloadCompiled(String source, Parser.Result parseResult) {
+            String key = null;
+            LinkedHashMap<String, byte[]> classes = null;
+            if (cache != null && ClassCache.BUILD != null) {
+                key = ClassCache.key(file, source, optimizationLevel);
+                classes = cache.get(key);
+            }
+            if (classes == null) {
+                classes = compile(file, parseResult, new Globals(), false);
+                if (classes != null && key != null && !lazy) cache.put(key, classes);
+            }
+
+            if (classes != null) {
+                Runnable runnable = Compiler.load(classes, file);
+                if (runnable != null) preloaded.put(file, runnable);
+            }
+        }
+    }
+}
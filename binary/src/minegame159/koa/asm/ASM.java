@@ -43,6 +43,20 @@ public class ASM {
     public static final String VALUE_FUNCTION = "minegame159/koa/Value$Function";
     public static final String VALUE_FUNCTION_D = "Lminegame159/koa/Value$Function;";
 
+    public static final String SYMBOL = "minegame159/koa/Symbol";
+    public static final String SYMBOL_D = "Lminegame159/koa/Symbol;";
+
+    public static final String PROPERTY_CACHE = "minegame159/koa/PropertyCache";
+    public static final String PROPERTY_CACHE_D = "Lminegame159/koa/PropertyCache;";
+
+    public static final String LINKER = "minegame159/koa/Linker";
+    public static final String LINKER_BOOTSTRAP_D = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;II)Ljava/lang/invoke/CallSite;";
+
+    public static final String KOA_RUNTIME = "minegame159/koa/KoaRuntime";
+
+    public static final String LAZY_FUNCTION = "minegame159/koa/LazyFunction";
+    public static final String LAZY_FUNCTION_BOOTSTRAP_D = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;)Ljava/lang/invoke/CallSite;";
+
     public static final String ERROR = "minegame159/koa/Error";
     public static final String ERROR_D = "Lminegame159/koa/Error;";
 
@@ -0,0 +1,68 @@
+package minegame159.koa.asm;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ClassBuilder {
+    public final String name;
+    public final String superName;
+
+    private ClassWriter c = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+    private MethodBuilder staticInit;
+    private Map<Object, String> constants = new HashMap<>();
+
+    public ClassBuilder(String name, String superName, String[] interfaces) {
+        this.name = name;
+        this.superName = superName;
+
+        c.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+    }
+
+    public void field(String name, String descriptors) {
+        c.visitField(Opcodes.ACC_PUBLIC, name, descriptors, null, null).visitEnd();
+    }
+
+    public void staticField(String name, String descriptor) {
+        c.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, name, descriptor, null, null).visitEnd();
+    }
+
+    public String constant(Object key) {
+        return constants.get(key);
+    }
+    public String constant(Object key, String descriptor) {
+        String name = "CONSTANT_" + constants.size();
+        c.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, name, descriptor, null, null).visitEnd();
+        constants.put(key, name);
+        return name;
+    }
+
+    public MethodBuilder staticInit() {
+        if (staticInit == null) staticInit = new MethodBuilder(this, c.visitMethod(Opcodes.ACC_STATIC, "<clinit>", "()V", null, null), "<clinit>", "()V");
+        return staticInit;
+    }
+
+    public MethodBuilder method(String name, String... descriptors) {
+        String descriptor = ASM.methodDescriptor(descriptors);
+        return new MethodBuilder(this, c.visitMethod(Opcodes.ACC_PUBLIC, name, descriptor, null, null), name, descriptor);
+    }
+
+    public MethodBuilder privateMethod(String name, String... descriptors) {
+        String descriptor = ASM.methodDescriptor(descriptors);
+        return new MethodBuilder(this, c.visitMethod(Opcodes.ACC_PRIVATE, name, descriptor, null, null), name, descriptor);
+    }
+
+    public void end() {
+        if (staticInit != null) {
+            staticInit.insn(Opcodes.RETURN);
+            staticInit.end();
+        }
+        c.visitEnd();
+    }
+
+    public byte[] build() {
+        return c.toByteArray();
+    }
+}
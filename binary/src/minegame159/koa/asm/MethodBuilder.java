@@ -1,5 +1,6 @@
 package minegame159.koa.asm;
 
+import org.objectweb.asm.Handle;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
@@ -54,6 +55,10 @@ public class MethodBuilder {
         m.visitMethodInsn(Opcodes.INVOKESTATIC, owner, name, ASM.methodDescriptor(descriptors), false);
     }
 
+    public void invokeDynamicInsn(String name, Handle bootstrap, Object[] bootstrapArgs, String... descriptors) {
+        m.visitInvokeDynamicInsn(name, ASM.methodDescriptor(descriptors), bootstrap, bootstrapArgs);
+    }
+
     public void jumpInsn(int opcode, Label label) {
         m.visitJumpInsn(opcode, label);
     }
@@ -0,0 +1,454 @@
+package minegame159.koa.ast;
+
+import minegame159.koa.Token;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class Analyzer implements Stmt.Visitor, Expr.Visitor {
+    public static class Result {
+        private Set<Stmt.Var> numbers = Collections.newSetFromMap(new IdentityHashMap<>());
+        private IdentityHashMap<Stmt, Loop> loops = new IdentityHashMap<>();
+        private HashMap<String, Inline> inlines = new HashMap<>();
+
+        public boolean isNumber(Stmt.Var var) {
+            return numbers.contains(var);
+        }
+
+        public Loop loop(Stmt stmt) {
+            return loops.get(stmt);
+        }
+
+        public Inline inline(String name) {
+            return inlines.get(name);
+        }
+    }
+
+    // Top level function whose body is a single small return expression that can be compiled in place of calls to it
+    public static class Inline {
+        public static final int MAX_SIZE = 16;
+
+        public final Expr.Function function;
+        public final Expr value;
+        // Set when the global is assigned somewhere else too, calls then check that it still holds this function
+        public final boolean guarded;
+
+        private Inline(Expr.Function function, Expr value, boolean guarded) {
+            this.function = function;
+            this.value = value;
+            this.guarded = guarded;
+        }
+    }
+
+    // Lookups in a loop that give the same value on every iteration
+    public static class Loop {
+        // Globals read in the loop that are never assigned anywhere in the compiled unit
+        public final Set<String> globals = new LinkedHashSet<>();
+        // Constant key reads like Math.PI from those globals, only kept when nothing in the loop can write to them
+        public final Set<String> members = new LinkedHashSet<>();
+
+        private boolean pure = true;
+        private Set<String> writtenKeys = new HashSet<>();
+        private ArrayList<Expr> numberOperands = new ArrayList<>();
+    }
+
+    private Result result = new Result();
+    private int scopeDepth;
+    private ArrayList<Local> locals = new ArrayList<>();
+    private ArrayList<Local> declared = new ArrayList<>();
+    private IdentityHashMap<Expr, Local> resolved = new IdentityHashMap<>();
+    private Set<String> assigned = new HashSet<>();
+    private Set<String> reassigned = new HashSet<>();
+    private ArrayList<Loop> activeLoops = new ArrayList<>();
+
+    private Analyzer() {}
+
+    public static Result analyze(ArrayList<Stmt> stmts) {
+        Analyzer analyzer = new Analyzer();
+        for (int i = 0; i < stmts.size(); i++) analyzer.analyze(stmts.get(i));
+        analyzer.inferNumbers();
+        analyzer.finishLoops();
+        analyzer.findInlines(stmts);
+        return analyzer.result;
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        beginScope();
+        for (int i = 0; i < stmt.stmts.size(); i++) analyze(stmt.stmts.get(i));
+        endScope();
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        analyze(stmt.expr);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        analyze(stmt.initializer);
+        assign(stmt.name.lexeme);
+
+        // Variables declared at depth 0 are globals, same as in the compiler
+        if (scopeDepth > 0) {
+            Local local = new Local(stmt.name, scopeDepth, stmt);
+            local.values.add(stmt.initializer);
+            locals.add(local);
+            declared.add(local);
+        }
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        analyze(stmt.condition);
+        analyze(stmt.thenBranch);
+        analyze(stmt.elseBranch);
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        beginLoop(stmt);
+        analyze(stmt.condition);
+        analyze(stmt.body);
+        endLoop();
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        beginScope();
+        analyze(stmt.initializer);
+        beginLoop(stmt);
+        analyze(stmt.condition);
+        analyze(stmt.body);
+        analyze(stmt.increment);
+        endLoop();
+        endScope();
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {
+
+    }
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {
+
+    }
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        analyze(stmt.value);
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        analyze(expr.left);
+        analyze(expr.right);
+
+        // Arithmetic and equality on tables can run metamethods
+        Token.Type type = expr.operator.type;
+        if (type == Token.Type.Plus || type == Token.Type.Minus || type == Token.Type.Star || type == Token.Type.Slash || type == Token.Type.Percentage) {
+            for (int i = 0; i < activeLoops.size(); i++) activeLoops.get(i).numberOperands.add(expr.left);
+        }
+        else if ((type == Token.Type.EqualEqual || type == Token.Type.BangEqual) && !isPrimitiveLiteral(expr.left) && !isPrimitiveLiteral(expr.right)) impure();
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        analyze(expr.expr);
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {
+
+    }
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        analyze(expr.left);
+        analyze(expr.right);
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        analyze(expr.right);
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {
+        Local local = resolveLocal(expr.name);
+        if (local != null) resolved.put(expr, local);
+        else {
+            for (int i = 0; i < activeLoops.size(); i++) activeLoops.get(i).globals.add(expr.name.lexeme);
+        }
+    }
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        Local local = resolveLocal(expr.name);
+        if (local != null) {
+            resolved.put(expr, local);
+            if (expr.operator.type == Token.Type.Equal) local.values.add(expr.value);
+        }
+        else assign(expr.name.lexeme);
+
+        if (isCompound(expr.operator.type)) {
+            for (int i = 0; i < activeLoops.size(); i++) activeLoops.get(i).numberOperands.add(expr);
+        }
+
+        analyze(expr.value);
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        for (Expr e : expr.values.values()) analyze(e);
+        for (int i = 0; i < expr.items.size(); i++) analyze(expr.items.get(i));
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        analyze(expr.object);
+        analyze(expr.key);
+
+        if (expr.name != null && expr.object instanceof Expr.Variable && resolveLocal(((Expr.Variable) expr.object).name) == null) {
+            for (int i = 0; i < activeLoops.size(); i++) activeLoops.get(i).members.add(((Expr.Variable) expr.object).name.lexeme + "." + expr.name.lexeme);
+        }
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        analyze(expr.object);
+        analyze(expr.key);
+        analyze(expr.value);
+
+        for (int i = 0; i < activeLoops.size(); i++) {
+            if (expr.name == null || isCompound(expr.operator.type)) activeLoops.get(i).pure = false;
+            else activeLoops.get(i).writtenKeys.add(expr.name.lexeme);
+        }
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        impure();
+        analyze(expr.callee);
+        for (int i = 0; i < expr.args.size(); i++) analyze(expr.args.get(i));
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        // Functions can't see locals of the enclosing function and their bodies don't run as part of enclosing loops
+        ArrayList<Local> enclosingLocals = locals;
+        ArrayList<Loop> enclosingLoops = activeLoops;
+        locals = new ArrayList<>();
+        activeLoops = new ArrayList<>();
+        for (int i = 0; i < expr.args.size(); i++) {
+            Local local = new Local(expr.args.get(i), scopeDepth, null);
+            local.number = false;
+            locals.add(local);
+        }
+        for (int i = 0; i < expr.stmts.size(); i++) analyze(expr.stmts.get(i));
+        locals = enclosingLocals;
+        activeLoops = enclosingLoops;
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {
+
+    }
+
+    // Type inference
+
+    private void inferNumbers() {
+        // Start by assuming that every local is a number and demote locals until nothing changes
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            for (int i = 0; i < declared.size(); i++) {
+                Local local = declared.get(i);
+                if (!local.number) continue;
+
+                for (int j = 0; j < local.values.size(); j++) {
+                    if (!isNumber(local.values.get(j))) {
+                        local.number = false;
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < declared.size(); i++) {
+            if (declared.get(i).number) result.numbers.add(declared.get(i).declaration);
+        }
+    }
+
+    private boolean isNumber(Expr expr) {
+        if (expr instanceof Expr.Grouping) return isNumber(((Expr.Grouping) expr).expr);
+        if (expr instanceof Expr.Literal) return ((Expr.Literal) expr).value instanceof Double;
+        if (expr instanceof Expr.Unary) return ((Expr.Unary) expr).operator.type == Token.Type.Minus;
+        if (expr instanceof Expr.Binary) {
+            Token.Type type = ((Expr.Binary) expr).operator.type;
+            return (type == Token.Type.Plus || type == Token.Type.Minus || type == Token.Type.Star || type == Token.Type.Slash || type == Token.Type.Percentage) && isNumber(((Expr.Binary) expr).left);
+        }
+        if (expr instanceof Expr.Variable) {
+            Local local = resolved.get(expr);
+            return local != null && local.number;
+        }
+        if (expr instanceof Expr.Assign) {
+            Expr.Assign assign = (Expr.Assign) expr;
+            if (assign.operator.type == Token.Type.Equal) return isNumber(assign.value);
+            if (assign.operator.type == Token.Type.PlusPlus || assign.operator.type == Token.Type.MinusMinus) return true;
+
+            Local local = resolved.get(expr);
+            return local != null && local.number;
+        }
+        return false;
+    }
+
+    // Loops
+
+    private void beginLoop(Stmt stmt) {
+        Loop loop = new Loop();
+        result.loops.put(stmt, loop);
+        activeLoops.add(loop);
+    }
+    private void endLoop() {
+        activeLoops.remove(activeLoops.size() - 1);
+    }
+
+    private void impure() {
+        for (int i = 0; i < activeLoops.size(); i++) activeLoops.get(i).pure = false;
+    }
+
+    private void finishLoops() {
+        for (Loop loop : result.loops.values()) {
+            loop.globals.removeAll(assigned);
+
+            for (int i = 0; i < loop.numberOperands.size(); i++) {
+                if (!isNumber(loop.numberOperands.get(i))) loop.pure = false;
+            }
+
+            for (Iterator<String> it = loop.members.iterator(); it.hasNext();) {
+                String member = it.next();
+                int dot = member.indexOf('.');
+                if (!loop.pure || !loop.globals.contains(member.substring(0, dot)) || loop.writtenKeys.contains(member.substring(dot + 1))) it.remove();
+            }
+
+            loop.writtenKeys = null;
+            loop.numberOperands = null;
+        }
+    }
+
+    // Inlining
+
+    private void findInlines(ArrayList<Stmt> stmts) {
+        // The parser moves these declarations to the start so they run before anything can call them
+        for (int i = 0; i < stmts.size(); i++) {
+            if (!(stmts.get(i) instanceof Stmt.Var) || !(((Stmt.Var) stmts.get(i)).initializer instanceof Expr.Function)) continue;
+
+            String name = ((Stmt.Var) stmts.get(i)).name.lexeme;
+            Expr.Function function = (Expr.Function) ((Stmt.Var) stmts.get(i)).initializer;
+            if (function.stmts.isEmpty() || !(function.stmts.get(0) instanceof Stmt.Return)) continue;
+
+            Expr value = ((Stmt.Return) function.stmts.get(0)).value;
+            int size = inlineSize(value, name);
+            if (size >= 0 && size <= Inline.MAX_SIZE) result.inlines.put(name, new Inline(function, value, reassigned.contains(name)));
+        }
+    }
+
+    // Number of nodes in the expression or -1 if it can't be inlined
+    private int inlineSize(Expr expr, String name) {
+        if (expr == null || expr instanceof Expr.Literal) return 1;
+        if (expr instanceof Expr.Self || expr instanceof Expr.Function) return -1;
+        if (expr instanceof Expr.Variable) return ((Expr.Variable) expr).name.lexeme.equals(name) ? -1 : 1;
+        if (expr instanceof Expr.Grouping) return inlineSize(((Expr.Grouping) expr).expr, name);
+        if (expr instanceof Expr.Unary) return add(1, inlineSize(((Expr.Unary) expr).right, name));
+        if (expr instanceof Expr.Binary) return add(add(1, inlineSize(((Expr.Binary) expr).left, name)), inlineSize(((Expr.Binary) expr).right, name));
+        if (expr instanceof Expr.Logical) return add(add(1, inlineSize(((Expr.Logical) expr).left, name)), inlineSize(((Expr.Logical) expr).right, name));
+        if (expr instanceof Expr.Assign) return ((Expr.Assign) expr).name.lexeme.equals(name) ? -1 : add(1, inlineSize(((Expr.Assign) expr).value, name));
+        if (expr instanceof Expr.Get) return add(add(1, inlineSize(((Expr.Get) expr).object, name)), inlineSize(((Expr.Get) expr).key, name));
+        if (expr instanceof Expr.Set) {
+            Expr.Set set = (Expr.Set) expr;
+            return add(add(add(1, inlineSize(set.object, name)), inlineSize(set.key, name)), inlineSize(set.value, name));
+        }
+        if (expr instanceof Expr.Call) {
+            int size = add(1, inlineSize(((Expr.Call) expr).callee, name));
+            for (int i = 0; i < ((Expr.Call) expr).args.size(); i++) size = add(size, inlineSize(((Expr.Call) expr).args.get(i), name));
+            return size;
+        }
+        if (expr instanceof Expr.Table) {
+            int size = 1;
+            for (Expr e : ((Expr.Table) expr).values.values()) size = add(size, inlineSize(e, name));
+            for (int i = 0; i < ((Expr.Table) expr).items.size(); i++) size = add(size, inlineSize(((Expr.Table) expr).items.get(i), name));
+            return size;
+        }
+        return -1;
+    }
+
+    private static int add(int a, int b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    private boolean isCompound(Token.Type type) {
+        return type == Token.Type.PlusEqual || type == Token.Type.MinusEqual || type == Token.Type.StarEqual || type == Token.Type.SlashEqual || type == Token.Type.PercentageEqual;
+    }
+
+    private boolean isPrimitiveLiteral(Expr expr) {
+        return expr instanceof Expr.Literal && !(((Expr.Literal) expr).value instanceof String);
+    }
+
+    // Helper methods
+
+    private void assign(String name) {
+        if (!assigned.add(name)) reassigned.add(name);
+    }
+
+    private void analyze(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+    private void analyze(Expr expr) {
+        if (expr != null) expr.accept(this);
+    }
+
+    private Local resolveLocal(Token name) {
+        for (int i = locals.size() - 1; i >= 0; i--) {
+            Local local = locals.get(i);
+            if (local.name.lexeme.equals(name.lexeme)) return local;
+        }
+
+        return null;
+    }
+
+    private void beginScope() {
+        scopeDepth++;
+    }
+    private void endScope() {
+        scopeDepth--;
+        while (locals.size() > 0 && locals.get(locals.size() - 1).scopeDepth > scopeDepth) locals.remove(locals.size() - 1);
+    }
+
+    private static class Local {
+        public final Token name;
+        public final int scopeDepth;
+        public final Stmt.Var declaration;
+        public final ArrayList<Expr> values = new ArrayList<>(1);
+        public boolean number = true;
+
+        public Local(Token name, int scopeDepth, Stmt.Var declaration) {
+            this.name = name;
+            this.scopeDepth = scopeDepth;
+            this.declaration = declaration;
+        }
+    }
+}
@@ -136,10 +136,12 @@ public abstract class Expr {
 
     public static class Table extends Expr {
         public HashMap<Token, Expr> values;
+        public ArrayList<Expr> items;
 
-        public Table(int line, HashMap<Token, Expr> values) {
+        public Table(int line, HashMap<Token, Expr> values, ArrayList<Expr> items) {
             super(line);
             this.values = values;
+            this.items = items;
         }
 
         @Override
@@ -0,0 +1,309 @@
+package minegame159.koa.ast;
+
+import minegame159.koa.Token;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+public class Optimizer implements Stmt.Visitor, Expr.Visitor {
+    public static final int NONE = 0;
+    public static final int FULL = 1;
+
+    // Set by a visit method when the visited node should be replaced
+    private boolean stmtReplaced, exprReplaced;
+    private Stmt stmtResult;
+    private Expr exprResult;
+
+    private Optimizer() {}
+
+    public static void optimize(ArrayList<Stmt> stmts, int level) {
+        if (level <= NONE) return;
+        new Optimizer().optimize(stmts);
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        optimize(stmt.stmts);
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        stmt.expr = optimize(stmt.expr);
+
+        // Literals on their own don't do anything
+        if (stmt.expr instanceof Expr.Literal) replace((Stmt) null);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        stmt.initializer = optimize(stmt.initializer);
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        stmt.condition = optimizeCondition(stmt.condition);
+        stmt.thenBranch = optimize(stmt.thenBranch);
+        stmt.elseBranch = optimize(stmt.elseBranch);
+
+        if (stmt.condition instanceof Expr.Literal) replace(isTruthy((Expr.Literal) stmt.condition) ? stmt.thenBranch : stmt.elseBranch);
+        else if (stmt.thenBranch == null) stmt.thenBranch = new Stmt.Block(stmt.line, new ArrayList<>(0));
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        stmt.condition = optimizeCondition(stmt.condition);
+        stmt.body = optimize(stmt.body);
+
+        if (stmt.condition instanceof Expr.Literal && !isTruthy((Expr.Literal) stmt.condition)) replace((Stmt) null);
+        else if (stmt.body == null) stmt.body = new Stmt.Block(stmt.line, new ArrayList<>(0));
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        stmt.initializer = optimize(stmt.initializer);
+        stmt.condition = optimizeCondition(stmt.condition);
+        stmt.increment = optimize(stmt.increment);
+        stmt.body = optimize(stmt.body);
+
+        // The initializer still runs when the loop never does
+        if (stmt.condition instanceof Expr.Literal && !isTruthy((Expr.Literal) stmt.condition)) {
+            ArrayList<Stmt> stmts = new ArrayList<>(1);
+            if (stmt.initializer != null) stmts.add(stmt.initializer);
+            replace(stmts.isEmpty() ? null : new Stmt.Block(stmt.line, stmts));
+        }
+        else if (stmt.body == null) stmt.body = new Stmt.Block(stmt.line, new ArrayList<>(0));
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {
+
+    }
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {
+
+    }
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        stmt.value = optimize(stmt.value);
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        expr.left = optimize(expr.left);
+        expr.right = optimize(expr.right);
+
+        Object left = literal(expr.left);
+        Object right = literal(expr.right);
+        Token.Type type = expr.operator.type;
+
+        if (left instanceof Double && right instanceof Double) {
+            double a = (double) left;
+            double b = (double) right;
+
+            switch (type) {
+                case Plus:         replace(literal(expr, a + b)); return;
+                case Minus:        replace(literal(expr, a - b)); return;
+                case Star:         replace(literal(expr, a * b)); return;
+                case Slash:        replace(literal(expr, a / b)); return;
+                case Percentage:   replace(literal(expr, a % b)); return;
+                case Greater:      replace(literal(expr, a > b)); return;
+                case GreaterEqual: replace(literal(expr, a >= b)); return;
+                case Less:         replace(literal(expr, a < b)); return;
+                case LessEqual:    replace(literal(expr, a <= b)); return;
+            }
+        }
+
+        // Strings concatenate the string form of any literal
+        if (type == Token.Type.Plus && left instanceof String && expr.right instanceof Expr.Literal) {
+            replace(literal(expr, left + toString(right)));
+            return;
+        }
+
+        if ((type == Token.Type.EqualEqual || type == Token.Type.BangEqual) && expr.left instanceof Expr.Literal && expr.right instanceof Expr.Literal) {
+            boolean equal;
+            if (left instanceof Double && right instanceof Double) equal = (double) left == (double) right;
+            else equal = left == null ? right == null : left.equals(right);
+            replace(literal(expr, type == Token.Type.EqualEqual ? equal : !equal));
+            return;
+        }
+
+        // x - 0, x * 1 and x / 1 give x back only when x is a number, x + 0 is left alone because -0 + 0 is 0
+        if (isNumber(expr.left) && right instanceof Double) {
+            double b = (double) right;
+            if ((type == Token.Type.Minus && b == 0 && 1 / b > 0) || ((type == Token.Type.Star || type == Token.Type.Slash) && b == 1)) replace(expr.left);
+        }
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        replace(optimize(expr.expr));
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {
+
+    }
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        expr.left = optimizeCondition(expr.left);
+        expr.right = optimizeCondition(expr.right);
+
+        // Logical operators always produce a bool, so only a literal left side that decides the result can be folded
+        if (expr.left instanceof Expr.Literal) {
+            boolean left = isTruthy((Expr.Literal) expr.left);
+            boolean and = expr.operator.type == Token.Type.And;
+
+            if (left != and) replace(literal(expr, left));
+            else if (expr.right instanceof Expr.Literal) replace(literal(expr, isTruthy((Expr.Literal) expr.right)));
+        }
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        expr.right = optimize(expr.right);
+
+        if (expr.right instanceof Expr.Literal) {
+            Object right = ((Expr.Literal) expr.right).value;
+
+            if (expr.operator.type == Token.Type.Minus && right instanceof Double) replace(literal(expr, -(double) right));
+            else if (expr.operator.type == Token.Type.Bang) replace(literal(expr, !isTruthy((Expr.Literal) expr.right)));
+        }
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {
+
+    }
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        expr.value = optimize(expr.value);
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        for (Map.Entry<Token, Expr> entry : expr.values.entrySet()) entry.setValue(optimize(entry.getValue()));
+        for (int i = 0; i < expr.items.size(); i++) expr.items.set(i, optimize(expr.items.get(i)));
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        expr.object = optimize(expr.object);
+        expr.key = optimize(expr.key);
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        expr.object = optimize(expr.object);
+        expr.key = optimize(expr.key);
+        expr.value = optimize(expr.value);
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        expr.callee = optimize(expr.callee);
+        for (int i = 0; i < expr.args.size(); i++) expr.args.set(i, optimize(expr.args.get(i)));
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        optimize(expr.stmts);
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {
+
+    }
+
+    // Helper methods
+
+    private void optimize(ArrayList<Stmt> stmts) {
+        for (int i = 0; i < stmts.size(); i++) {
+            Stmt stmt = optimize(stmts.get(i));
+
+            if (stmt == null) stmts.remove(i--);
+            else {
+                stmts.set(i, stmt);
+
+                // Nothing after these is ever reached
+                if (stmt instanceof Stmt.Return || stmt instanceof Stmt.Break || stmt instanceof Stmt.Continue) {
+                    while (stmts.size() > i + 1) stmts.remove(stmts.size() - 1);
+                }
+            }
+        }
+    }
+
+    private Stmt optimize(Stmt stmt) {
+        if (stmt == null) return null;
+        stmt.accept(this);
+
+        if (!stmtReplaced) return stmt;
+        stmtReplaced = false;
+        return stmtResult;
+    }
+    private void replace(Stmt stmt) {
+        stmtReplaced = true;
+        stmtResult = stmt;
+    }
+
+    private Expr optimize(Expr expr) {
+        if (expr == null) return null;
+        expr.accept(this);
+
+        if (!exprReplaced) return expr;
+        exprReplaced = false;
+        return exprResult;
+    }
+    private void replace(Expr expr) {
+        exprReplaced = true;
+        exprResult = expr;
+    }
+
+    private Expr optimizeCondition(Expr expr) {
+        expr = optimize(expr);
+
+        // Only the truthiness of a condition matters so double negations can go
+        while (expr instanceof Expr.Unary && ((Expr.Unary) expr).operator.type == Token.Type.Bang && ((Expr.Unary) expr).right instanceof Expr.Unary && ((Expr.Unary) ((Expr.Unary) expr).right).operator.type == Token.Type.Bang) {
+            expr = ((Expr.Unary) ((Expr.Unary) expr).right).right;
+        }
+
+        return expr;
+    }
+
+    private boolean isNumber(Expr expr) {
+        if (expr instanceof Expr.Literal) return ((Expr.Literal) expr).value instanceof Double;
+        if (expr instanceof Expr.Unary) return ((Expr.Unary) expr).operator.type == Token.Type.Minus;
+        if (expr instanceof Expr.Binary) {
+            Token.Type type = ((Expr.Binary) expr).operator.type;
+            return (type == Token.Type.Minus || type == Token.Type.Star || type == Token.Type.Slash || type == Token.Type.Percentage || type == Token.Type.Plus) && isNumber(((Expr.Binary) expr).left);
+        }
+        return false;
+    }
+
+    private static Object literal(Expr expr) {
+        return expr instanceof Expr.Literal ? ((Expr.Literal) expr).value : null;
+    }
+
+    private static Expr literal(Expr expr, Object value) {
+        return new Expr.Literal(expr.line, value);
+    }
+
+    private static boolean isTruthy(Expr.Literal literal) {
+        if (literal.value == null) return false;
+        if (literal.value instanceof Boolean) return (boolean) literal.value;
+        return true;
+    }
+
+    private static String toString(Object value) {
+        if (value == null) return "null";
+        if (value instanceof Double) return Double.toString((double) value);
+        return value.toString();
+    }
+}
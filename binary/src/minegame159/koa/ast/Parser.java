@@ -30,9 +30,9 @@ public class Parser {
     private Token next;
     private Result result = new Result();
 
-    private Parser(String file) {
+    private Parser(String file, String source) {
         this.file = file;
-        lexer = new Lexer(Utils.readFile(file));
+        lexer = new Lexer(source);
 
         next = lexer.scanToken();
 
@@ -43,7 +43,10 @@ public class Parser {
     }
 
     public static Result parse(String file) {
-        return new Parser(file).result;
+        return parse(file, Utils.readFile(file));
+    }
+    public static Result parse(String file, String source) {
+        return new Parser(file, source).result;
     }
 
     private void parse() {
@@ -125,8 +128,8 @@ public class Parser {
         Stmt initializer = null;
         switch (current.type) {
             case Semicolon: advance(); initializer = null; break;
-            case Var:       advance(); initializer = variableDeclaration(); break;
-            default:        expressionStatement(); break;
+            case Var:       advance(); initializer = variableDeclaration(); consume(Token.Type.Semicolon, "Expected ';' after loop initializer."); break;
+            default:        initializer = expressionStatement(); consume(Token.Type.Semicolon, "Expected ';' after loop initializer."); break;
         }
         Expr condition = null;
         if (!check(Token.Type.Semicolon)) condition = expression();
@@ -314,6 +317,7 @@ public class Parser {
             case Identifier: advance(); return new Expr.Variable(line, previous);
             case Self:       advance(); return new Expr.Self(line);
             case LeftBrace:  advance(); return tableExpression(line);
+            case LeftBracket: advance(); return arrayExpression(line);
             case Function:   advance(); return functionExpression(line);
             case LeftParen: {
                 advance();
@@ -339,7 +343,19 @@ public class Parser {
         }
 
         consume(Token.Type.RightBrace, "Expected '}' at the end of an object.");
-        return new Expr.Table(line, values);
+        return new Expr.Table(line, values, new ArrayList<>(0));
+    }
+
+    private Expr arrayExpression(int line) {
+        ArrayList<Expr> items = new ArrayList<>();
+
+        while (!check(Token.Type.RightBracket)) {
+            items.add(expression());
+            if (!check(Token.Type.RightBracket)) consume(Token.Type.Comma, "Expected ',' before next value.");
+        }
+
+        consume(Token.Type.RightBracket, "Expected ']' at the end of an array.");
+        return new Expr.Table(line, new HashMap<>(0), items);
     }
 
     private Expr functionExpression(int line) {
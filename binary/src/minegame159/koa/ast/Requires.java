@@ -0,0 +1,148 @@
+package minegame159.koa.ast;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+// Finds the paths of scripts that are required with a literal path so they can be compiled before they run
+public class Requires implements Stmt.Visitor, Expr.Visitor {
+    private final Set<String> paths = new LinkedHashSet<>();
+
+    public static Set<String> find(ArrayList<Stmt> stmts) {
+        Requires requires = new Requires();
+        for (int i = 0; i < stmts.size(); i++) requires.visit(stmts.get(i));
+        return requires.paths;
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        for (int i = 0; i < stmt.stmts.size(); i++) visit(stmt.stmts.get(i));
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        visit(stmt.expr);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        visit(stmt.initializer);
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        visit(stmt.condition);
+        visit(stmt.thenBranch);
+        visit(stmt.elseBranch);
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        visit(stmt.condition);
+        visit(stmt.body);
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        visit(stmt.initializer);
+        visit(stmt.condition);
+        visit(stmt.body);
+        visit(stmt.increment);
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {}
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {}
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        visit(stmt.value);
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        visit(expr.left);
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        visit(expr.expr);
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {}
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        visit(expr.left);
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {}
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        visit(expr.value);
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        for (Expr e : expr.values.values()) visit(e);
+        for (int i = 0; i < expr.items.size(); i++) visit(expr.items.get(i));
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        visit(expr.object);
+        visit(expr.key);
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        visit(expr.object);
+        visit(expr.key);
+        visit(expr.value);
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        // A global named require could be something else, compiling a script that is never required only costs time
+        if (expr.callee instanceof Expr.Variable && ((Expr.Variable) expr.callee).name.lexeme.equals("require") && expr.args.size() == 1) {
+            Expr arg = expr.args.get(0);
+            if (arg instanceof Expr.Literal && ((Expr.Literal) arg).value instanceof String) paths.add((String) ((Expr.Literal) arg).value);
+        }
+
+        visit(expr.callee);
+        for (int i = 0; i < expr.args.size(); i++) visit(expr.args.get(i));
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        for (int i = 0; i < expr.stmts.size(); i++) visit(expr.stmts.get(i));
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {}
+
+    // Helper methods
+
+    private void visit(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+    private void visit(Expr expr) {
+        if (expr != null) expr.accept(this);
+    }
+}
@@ -0,0 +1,209 @@
+package minegame159.koa.ast;
+
+import minegame159.koa.Token;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Estimates how much bytecode statements compile to and whether they can be moved into a method of their own
+public class Splitter implements Stmt.Visitor, Expr.Visitor {
+    // HotSpot doesn't compile methods over 8000 bytes, statement lists above MAX_SIZE are split into chunks of at most CHUNK_SIZE
+    public static final int MAX_SIZE = 6000;
+    public static final int CHUNK_SIZE = 3000;
+    public static final int MIN_CHUNK_SIZE = 200;
+
+    public static class Info {
+        // Rough number of bytes the statement compiles to
+        public int size;
+        // Contains a return of the enclosing function
+        public boolean returns;
+        // Contains a break or continue of an enclosing loop
+        public boolean escapes;
+        // Names assigned outside of nested functions, chunks get copies of enclosing locals so these have to be written back
+        public final Set<String> assigned = new HashSet<>();
+    }
+
+    private final IdentityHashMap<Stmt, Info> infos = new IdentityHashMap<>();
+    private Info info;
+    private int loopDepth;
+
+    public Info info(Stmt stmt) {
+        Info info = infos.get(stmt);
+
+        if (info == null) {
+            this.info = info = new Info();
+            loopDepth = 0;
+            stmt.accept(this);
+            this.info = null;
+            infos.put(stmt, info);
+        }
+
+        return info;
+    }
+
+    // Statements
+
+    @Override
+    public void visitBlockStmt(Stmt.Block stmt) {
+        for (int i = 0; i < stmt.stmts.size(); i++) visit(stmt.stmts.get(i));
+    }
+
+    @Override
+    public void visitExpressionStmt(Stmt.Expression stmt) {
+        info.size += 1;
+        visit(stmt.expr);
+    }
+
+    @Override
+    public void visitVarStmt(Stmt.Var stmt) {
+        info.size += 8;
+        info.assigned.add(stmt.name.lexeme);
+        visit(stmt.initializer);
+    }
+
+    @Override
+    public void visitIfStmt(Stmt.If stmt) {
+        info.size += 6;
+        visit(stmt.condition);
+        visit(stmt.thenBranch);
+        visit(stmt.elseBranch);
+    }
+
+    @Override
+    public void visitWhileStmt(Stmt.While stmt) {
+        info.size += 6;
+        loopDepth++;
+        visit(stmt.condition);
+        visit(stmt.body);
+        loopDepth--;
+    }
+
+    @Override
+    public void visitForStmt(Stmt.For stmt) {
+        info.size += 6;
+        visit(stmt.initializer);
+        loopDepth++;
+        visit(stmt.condition);
+        visit(stmt.body);
+        visit(stmt.increment);
+        loopDepth--;
+    }
+
+    @Override
+    public void visitBreakStmt(Stmt.Break stmt) {
+        info.size += 3;
+        if (loopDepth == 0) info.escapes = true;
+    }
+
+    @Override
+    public void visitContinueStmt(Stmt.Continue stmt) {
+        info.size += 3;
+        if (loopDepth == 0) info.escapes = true;
+    }
+
+    @Override
+    public void visitReturnStmt(Stmt.Return stmt) {
+        info.size += 2;
+        info.returns = true;
+        visit(stmt.value);
+    }
+
+    // Expressions
+
+    @Override
+    public void visitBinaryExpr(Expr.Binary expr) {
+        // Arithmetic on values that aren't known to be numbers also carries the metamethod path
+        Token.Type type = expr.operator.type;
+        if (type == Token.Type.EqualEqual || type == Token.Type.BangEqual) info.size += 10;
+        else if (type == Token.Type.Greater || type == Token.Type.GreaterEqual || type == Token.Type.Less || type == Token.Type.LessEqual) info.size += 30;
+        else info.size += 60;
+
+        visit(expr.left);
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitGroupingExpr(Expr.Grouping expr) {
+        visit(expr.expr);
+    }
+
+    @Override
+    public void visitLiteralExpr(Expr.Literal expr) {
+        info.size += 4;
+    }
+
+    @Override
+    public void visitLogicalExpr(Expr.Logical expr) {
+        info.size += 10;
+        visit(expr.left);
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitUnaryExpr(Expr.Unary expr) {
+        info.size += 20;
+        visit(expr.right);
+    }
+
+    @Override
+    public void visitVariableExpr(Expr.Variable expr) {
+        info.size += 6;
+    }
+
+    @Override
+    public void visitAssignExpr(Expr.Assign expr) {
+        info.size += expr.operator.type == Token.Type.Equal ? 8 : 60;
+        info.assigned.add(expr.name.lexeme);
+        visit(expr.value);
+    }
+
+    @Override
+    public void visitTableExpr(Expr.Table expr) {
+        info.size += 12 + 16 * (expr.values.size() + expr.items.size());
+        for (Expr e : expr.values.values()) visit(e);
+        for (int i = 0; i < expr.items.size(); i++) visit(expr.items.get(i));
+    }
+
+    @Override
+    public void visitGetExpr(Expr.Get expr) {
+        info.size += 16;
+        visit(expr.object);
+        visit(expr.key);
+    }
+
+    @Override
+    public void visitSetExpr(Expr.Set expr) {
+        info.size += expr.operator.type == Token.Type.Equal ? 24 : 80;
+        visit(expr.object);
+        visit(expr.key);
+        visit(expr.value);
+    }
+
+    @Override
+    public void visitCallExpr(Expr.Call expr) {
+        info.size += 20;
+        visit(expr.callee);
+        for (int i = 0; i < expr.args.size(); i++) visit(expr.args.get(i));
+    }
+
+    @Override
+    public void visitFunctionExpr(Expr.Function expr) {
+        // The body goes into its own class
+        info.size += 30;
+    }
+
+    @Override
+    public void visitSelfExpr(Expr.Self expr) {
+        info.size += 1;
+    }
+
+    // Helper methods
+
+    private void visit(Stmt stmt) {
+        if (stmt != null) stmt.accept(this);
+    }
+    private void visit(Expr expr) {
+        if (expr != null) expr.accept(this);
+    }
+}
@@ -116,6 +116,7 @@ public class Validator implements Stmt.Visitor, Expr.Visitor {
     @Override
     public void visitTableExpr(Expr.Table expr) {
         for (Expr e : expr.values.values()) validate(e);
+        for (int i = 0; i < expr.items.size(); i++) validate(expr.items.get(i));
     }
 
     @Override
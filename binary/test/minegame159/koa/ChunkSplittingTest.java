@@ -0,0 +1,64 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Scripts far over the split threshold have to compile to methods HotSpot still JIT compiles and give the same results
+public class ChunkSplittingTest {
+    // -XX:HugeMethodLimit, methods over it are always interpreted
+    private static final int HUGE_METHOD_LIMIT = 8000;
+    private static final int STATEMENTS = 4000;
+
+    @Test
+    public void oversizedScript() throws IOException {
+        StringBuilder source = new StringBuilder();
+        double sum = 0, acc = 1, local = 0;
+
+        source.append("var sum = 0\n");
+        for (int i = 0; i < STATEMENTS; i++) {
+            source.append("sum = sum + ").append(i % 10).append('\n');
+            sum += i % 10;
+        }
+
+        // Returns in the middle of a split function body
+        source.append("var f = function(x) {\nvar acc = x\n");
+        for (int i = 0; i < STATEMENTS; i++) {
+            source.append("acc = acc + ").append(i % 10).append('\n');
+            acc += i % 10;
+        }
+        source.append("if (acc > 0) return acc\nreturn -1\n}\nvar fromFunction = f(1)\n");
+
+        // Loop locals are written back from the chunks, break has to stay in the loop body
+        source.append("var loop = 0\nfor (var i = 0; i < 3; i++) {\nvar local = i\n");
+        for (int i = 0; i < STATEMENTS / 2; i++) source.append("local = local + 1\n");
+        source.append("if (local < 0) break\nloop = loop + local\n}\n");
+        for (int i = 0; i < 3; i++) local += i + STATEMENTS / 2;
+
+        String file = "oversized.koa";
+        Globals globals = new Globals();
+        LinkedHashMap<String, byte[]> classes = new ScriptLoader().compile(file, source.toString(), globals);
+        assertNotNull(classes);
+
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            for (Map.Entry<String, Integer> method : ClassFiles.codeSizes(entry.getValue()).entrySet()) {
+                assertTrue(entry.getKey() + "." + method.getKey() + " is " + method.getValue() + " bytes", method.getValue() <= HUGE_METHOD_LIMIT);
+            }
+        }
+
+        Runnable runnable = Compiler.load(classes, file);
+        assertNotNull(runnable);
+        assertTrue(globals.link(runnable));
+        runnable.run();
+
+        assertEquals(sum, globals.get("sum").toNumber(), 0);
+        assertEquals(acc, globals.get("fromFunction").toNumber(), 0);
+        assertEquals(local, globals.get("loop").toNumber(), 0);
+    }
+}
@@ -0,0 +1,73 @@
+package minegame159.koa;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Reads just enough of class files for tests to check what the compiler emitted
+public class ClassFiles {
+    // Length of the Code attribute of every method in a class file, keyed by name followed by descriptor
+    public static Map<String, Integer> codeSizes(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        in.readInt();
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int constantCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantCount];
+        for (int i = 1; i < constantCount; i++) {
+            int tag = in.readUnsignedByte();
+
+            switch (tag) {
+                case 1:  utf8[i] = in.readUTF(); break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18: in.skipBytes(4); break;
+                case 5: case 6: in.skipBytes(8); i++; break;
+                case 7: case 8: case 16: case 19: case 20: in.skipBytes(2); break;
+                case 15: in.skipBytes(3); break;
+                default: throw new IOException("Unknown constant tag " + tag);
+            }
+        }
+
+        in.skipBytes(6);
+        in.skipBytes(in.readUnsignedShort() * 2);
+
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            in.skipBytes(6);
+            skipAttributes(in);
+        }
+
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            in.skipBytes(2);
+            String name = utf8[in.readUnsignedShort()] + utf8[in.readUnsignedShort()];
+
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attribute = utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+
+                if (attribute.equals("Code")) {
+                    in.skipBytes(4);
+                    int codeLength = in.readInt();
+                    sizes.put(name, codeLength);
+                    in.skipBytes(length - 8);
+                }
+                else in.skipBytes(length);
+            }
+        }
+
+        return sizes;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int attributeCount = in.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Compiling and dropping scripts over and over must not grow Metaspace, every unit's classes go with its loader
+public class ClassUnloadingTest {
+    private static final int ROUNDS = 6;
+    private static final int UNITS = 200;
+    // Leaking the units of the rounds after the first one is several megabytes
+    private static final long MAX_GROWTH = 1024 * 1024;
+
+    private static final String SOURCE =
+            "var f = function(x) { return x * 2 + 1 }\n" +
+            "var sum = 0\n" +
+            "for (var i = 0; i < 2000; i++) sum = sum + f(i)\n";
+
+    @Test
+    public void compiled() throws IOException {
+        churn(false);
+    }
+
+    @Test
+    public void tiered() throws IOException {
+        // The function and loop get hot and are compiled into classes of the unit's loader
+        churn(true);
+    }
+
+    private static void churn(boolean tiered) throws IOException {
+        File file = File.createTempFile("unloading", ".koa");
+        file.deleteOnExit();
+        Files.write(file.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+
+        MemoryPoolMXBean metaspace = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getName().equals("Metaspace")) metaspace = pool;
+        }
+        assertNotNull("No Metaspace memory pool", metaspace);
+        ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+
+        long first = 0, used = 0;
+        long unloaded = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < UNITS; i++) {
+                ScriptLoader loader = new ScriptLoader();
+                loader.tiered = tiered;
+
+                Globals globals = new Globals();
+                globals.loader = loader;
+                globals.run(file.getPath());
+                assertEquals(4000000, globals.get("sum").toNumber(), 0);
+            }
+
+            System.gc();
+            System.gc();
+            used = metaspace.getUsage().getUsed();
+
+            // The first round also loads the compiler and runtime classes
+            if (round == 0) {
+                first = used;
+                unloaded = classLoading.getUnloadedClassCount();
+            }
+        }
+
+        assertTrue("Metaspace grew from " + first + " to " + used + " bytes", used - first < MAX_GROWTH);
+        assertTrue("No compiled classes were unloaded", classLoading.getUnloadedClassCount() - unloaded >= UNITS);
+    }
+}
@@ -0,0 +1,52 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Typical expressions have to stay far below -XX:FreqInlineSize (325 bytes) so the functions they are in still get inlined,
+// error and metamethod paths emitted at the use site instead of calling KoaRuntime make these fail
+public class ExpressionSizeTest {
+    @Test
+    public void arithmetic() throws IOException {
+        assertSize("function(a, b) { return a + b * 2 - a / b }", "run2", 200);
+    }
+
+    @Test
+    public void compoundAssignment() throws IOException {
+        assertSize("function(x) { x += 1\nreturn x }", "run1", 64);
+    }
+
+    @Test
+    public void fieldIncrement() throws IOException {
+        assertSize("function(t) { t.f = t.f + 1 }", "run1", 128);
+    }
+
+    @Test
+    public void comparison() throws IOException {
+        assertSize("function(a, b) { if (a < b) return a\nreturn b }", "run2", 64);
+    }
+
+    private static void assertSize(String function, String method, int max) throws IOException {
+        LinkedHashMap<String, byte[]> classes = new ScriptLoader().compile("size.koa", "var f = " + function + "\n", new Globals());
+        assertNotNull(classes);
+
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            if (!entry.getKey().endsWith("$Function0")) continue;
+
+            for (Map.Entry<String, Integer> size : ClassFiles.codeSizes(entry.getValue()).entrySet()) {
+                if (size.getKey().startsWith(method + "(")) {
+                    assertTrue(method + " of " + function + " is " + size.getValue() + " bytes", size.getValue() <= max);
+                    return;
+                }
+            }
+        }
+
+        throw new AssertionError("No " + method + " compiled for " + function);
+    }
+}
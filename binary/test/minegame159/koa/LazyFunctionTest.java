@@ -0,0 +1,83 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+// Bodies of function literals in lazy units get a class of their own when they are first called and not before
+public class LazyFunctionTest {
+    private static final String SOURCE =
+            "var t = {}\n" +
+            "var base = 10\n" +
+            "t.f = function(x) { if (true) { var y = x * 2\nreturn y + base } }\n";
+
+    @Test
+    public void notCompiledUntilCalled() throws IOException {
+        LinkedHashMap<String, byte[]> classes = lazyLoader().compile("lazy.koa", SOURCE, new Globals());
+        assertNotNull(classes);
+        assertEquals(1, classes.size());
+
+        Script script = run(SOURCE);
+        assertFalse("Body compiled before the first call", script.defined("$Lazy0"));
+        assertTrue(((Value.Table) script.globals.get("t")).get("f") instanceof LazyFunction);
+    }
+
+    @Test
+    public void firstCall() throws IOException {
+        Script script = run(SOURCE + "var a = t.f(1)\nbase = 20\nvar b = t.f(2)\nvar c = t.f(3)\n");
+        assertTrue("Body not compiled by the first call", script.defined("$Lazy0"));
+
+        assertEquals(12, script.globals.get("a").toNumber(), 0);
+        assertEquals(24, script.globals.get("b").toNumber(), 0);
+        assertEquals(26, script.globals.get("c").toNumber(), 0);
+    }
+
+    private static ScriptLoader lazyLoader() {
+        ScriptLoader loader = new ScriptLoader();
+        loader.lazy = true;
+        return loader;
+    }
+
+    private static Script run(String source) throws IOException {
+        File file = File.createTempFile("lazy", ".koa");
+        file.deleteOnExit();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        Globals globals = new Globals();
+        globals.loader = lazyLoader();
+        Runnable runnable = globals.loader.load(Utils.resolvePath(file.getPath()), globals);
+        assertNotNull(runnable);
+        runnable.run();
+
+        return new Script(globals, runnable);
+    }
+
+    private static class Script {
+        public final Globals globals;
+        private final Runnable main;
+
+        public Script(Globals globals, Runnable main) {
+            this.globals = globals;
+            this.main = main;
+        }
+
+        // Classes of the unit are defined by the loader of its main class
+        public boolean defined(String suffix) {
+            try {
+                Class.forName(main.getClass().getName() + suffix, false, main.getClass().getClassLoader());
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+// Writing to string literals or the metatable all strings share is a script error, not an exception that escapes the host
+public class ReadOnlyTableTest {
+    @Test
+    public void stringMetatable() throws IOException {
+        for (boolean tiered : new boolean[] { false, true }) {
+            assertEquals("[%s] Error: Table is read only.\n", run("var s = \"abc\"\ngetMetatable(s).x = 1\nprint(\"unreachable\")\n", tiered));
+        }
+    }
+
+    @Test
+    public void stringMethods() throws IOException {
+        for (boolean tiered : new boolean[] { false, true }) {
+            assertEquals("3.0\n[%s] Error: Table is read only.\n", run("var s = \"abc\"\nprint(s.length())\ngetMetatable(s).__index.length = 5\n", tiered));
+        }
+    }
+
+    @Test
+    public void stringLiterals() throws IOException {
+        // Literals are shared by every evaluation, other strings are tables of their own
+        for (boolean tiered : new boolean[] { false, true }) {
+            assertEquals("null\n[%s] Error: Table is read only.\n", run("var f = function() { var s = \"lit\"\nprint(s.tag)\ns.tag = 5 }\nf()\nf()\n", tiered));
+            assertEquals("[%s] Error: Table is read only.\n", run("setMetatable(\"lit\", {})\n", tiered));
+            assertEquals("1.0\n", run("var x = \"b\"\nvar s = \"a\" + x\ns.tag = 1\nprint(s.tag)\n", tiered));
+        }
+    }
+
+    // Returns what the script printed with its path replaced by %s
+    private static String run(String source, boolean tiered) throws IOException {
+        File file = File.createTempFile("readonly", ".koa");
+        file.deleteOnExit();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        ScriptLoader loader = new ScriptLoader();
+        loader.tiered = tiered;
+        Globals globals = new Globals();
+        globals.loader = loader;
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true, "UTF-8"));
+        try {
+            globals.run(file.getPath());
+        } finally {
+            System.setOut(out);
+        }
+
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8).replace(Utils.resolvePath(file.getPath()), "%s").replace(System.lineSeparator(), "\n");
+    }
+}
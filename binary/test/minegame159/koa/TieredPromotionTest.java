@@ -0,0 +1,108 @@
+package minegame159.koa;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Tiered units interpret functions and loops until they cross a threshold, results must not change when they switch to compiled code
+public class TieredPromotionTest {
+    private static final String FUNCTION =
+            "var t = {}\n" +
+            "var calls = 0\n" +
+            "var bad = 0\n" +
+            "t.f = function(x) { if (true) { var y = x + 1\ncalls = calls + 1\nreturn y * 2 } }\n" +
+            "for (var i = 0; i < %d; i++) if (t.f(i) != (i + 1) * 2) bad = bad + 1\n";
+
+    private static final String LOOP =
+            "var t = {}\n" +
+            "var count = 0\n" +
+            "var total = 0\n" +
+            "var last = -1\n" +
+            "t.run = function(n) { if (true) { var sum = 0\nvar j = -1\n" +
+            "for (var i = 0; i < n; i++) { sum = sum + i\nj = i\ncount = count + 1 }\n" +
+            "total = sum\nlast = j\nreturn sum } }\n" +
+            "t.find = function(n) { if (true) { var i = 0\nwhile (true) { if (i == n) return i * 3\ni = i + 1 } } }\n" +
+            "var result = t.run(%d)\n" +
+            "var found = t.find(%d)\n";
+
+    @Test
+    public void coldFunction() throws IOException {
+        int calls = Compiler.Template.HOT_INVOCATIONS / 2;
+        Globals globals = run(String.format(FUNCTION, calls));
+
+        assertNull("Function compiled below the threshold", function(globals, "f").target());
+        assertEquals(calls, globals.get("calls").toNumber(), 0);
+        assertEquals(0, globals.get("bad").toNumber(), 0);
+    }
+
+    @Test
+    public void hotFunction() throws IOException {
+        int calls = Compiler.Template.HOT_INVOCATIONS * 3;
+        Globals globals = run(String.format(FUNCTION, calls));
+
+        // Promoted by the call crossing the threshold, the calls after it ran compiled
+        Value.Function compiled = function(globals, "f").target();
+        assertNotNull("Function not compiled above the threshold", compiled);
+        assertTrue(compiled.getClass().getName().endsWith("$Lazy0"));
+        assertEquals(calls, globals.get("calls").toNumber(), 0);
+        assertEquals(0, globals.get("bad").toNumber(), 0);
+    }
+
+    @Test
+    public void hotLoop() throws IOException {
+        // The loop is promoted after HOT_BACK_EDGES iterations and the rest of them run compiled, taking over the locals
+        int n = Compiler.Template.HOT_BACK_EDGES * 5 + 7;
+        int found = Compiler.Template.HOT_BACK_EDGES * 2 + 3;
+        Globals globals = run(String.format(LOOP, n, found));
+
+        double sum = (double) n * (n - 1) / 2;
+        assertEquals(sum, globals.get("result").toNumber(), 0);
+        assertEquals(sum, globals.get("total").toNumber(), 0);
+        assertEquals(n - 1, globals.get("last").toNumber(), 0);
+        assertEquals(n, globals.get("count").toNumber(), 0);
+
+        // Returning from inside the compiled loop returns from the interpreted function
+        assertEquals(found * 3, globals.get("found").toNumber(), 0);
+
+        // Templates are numbered as the interpreter reaches them, the two functions come before their loops
+        Value.Function run = function(globals, "run").target();
+        assertNotNull(run);
+        assertTrue("Loop not compiled", defined(run, "$Loop2"));
+        assertTrue("Loop not compiled", defined(run, "$Loop3"));
+    }
+
+    private static Globals run(String source) throws IOException {
+        File file = File.createTempFile("tiered", ".koa");
+        file.deleteOnExit();
+        Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        ScriptLoader loader = new ScriptLoader();
+        loader.tiered = true;
+        Globals globals = new Globals();
+        globals.loader = loader;
+        globals.run(file.getPath());
+        return globals;
+    }
+
+    private static LazyFunction function(Globals globals, String name) {
+        return (LazyFunction) ((Value.Table) globals.get("t")).get(name);
+    }
+
+    private static boolean defined(Value.Function compiled, String suffix) {
+        String name = compiled.getClass().getName();
+        try {
+            Class.forName(name.substring(0, name.lastIndexOf('$')) + suffix, false, compiled.getClass().getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -21,7 +21,8 @@ public class Error extends RuntimeException {
 
     @Override
     public String toString() {
-        if (where != null) return "[" + file + " at line " + line + "] Error at " + where + ": " + message;
-        else return "[" + file + " at line " + line + "] Error: " + message;
+        String location = line > 0 ? "[" + file + " at line " + line + "]" : "[" + file + "]";
+        if (where != null) return location + " Error at " + where + ": " + message;
+        else return location + " Error: " + message;
     }
 }
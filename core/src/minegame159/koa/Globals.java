@@ -0,0 +1,216 @@
+package minegame159.koa;
+
+import minegame159.koa.tables.MathTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Globals {
+    // Every global gets a slot when it is first referenced, compiled code reads and writes the slots directly
+    public Value[] slots = new Value[32];
+    private Symbol[] names = new Symbol[32];
+    private int size;
+    private Map<Symbol, Integer> indices = new HashMap<>();
+
+    // Compiles or finds the code of scripts, picked when the first script runs if not set
+    public ModuleLoader loader;
+
+    private String file;
+    private boolean printedError;
+    // Shared with every globals created by require
+    private Map<String, Runnable> modules = new ConcurrentHashMap<>();
+
+    public Globals() {
+        set("print", new Value.Function() {
+            @Override
+            public int argCount() {
+                return -1;
+            }
+
+            @Override
+            public Value run(Table table, Value[] args) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = 0; i < args.length; i++) sb.append(args[i]);
+                System.out.println(sb);
+                return Value.NULL;
+            }
+        });
+
+        set("require", new Value.Function() {
+            @Override
+            public int argCount() {
+                return 1;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                Globals globals = new Globals();
+                globals.modules = modules;
+                globals.loader = loader;
+                globals.run(file + "/../" + args[0], printedError);
+                printedError = globals.printedError;
+                if (globals.contains("export")) return globals.get("export");
+                else return Value.NULL;
+            }
+        });
+
+        set("setMetatable", new Value.Function() {
+            @Override
+            public int argCount() {
+                return 2;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                args[0].toTable().setMetatable(args[1].toTable());
+                return Value.NULL;
+            }
+        });
+        set("getMetatable", new Value.Function() {
+            @Override
+            public int argCount() {
+                return 1;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                Table metatable = args[0].toTable().getMetatable();
+                return metatable != null ? metatable : Value.NULL;
+            }
+        });
+        set("length", new Value.Function() {
+            @Override
+            public int argCount() {
+                return 1;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                return Number.valueOf(args[0].toTable().size());
+            }
+        });
+
+        set("time", new Value.Function() {
+            @Override
+            public int argCount() {
+                return 0;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                return new Number(System.currentTimeMillis() / 1000.0);
+            }
+        });
+
+        set("Math", MathTable.instance);
+    }
+
+    public int indexOf(Symbol key) {
+        Integer index = indices.get(key);
+
+        if (index == null) {
+            if (size >= slots.length) {
+                slots = Arrays.copyOf(slots, slots.length * 2);
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+
+            index = size++;
+            slots[index] = Value.NULL;
+            names[index] = key;
+            indices.put(key, index);
+        }
+
+        return index;
+    }
+    public String[] layout() {
+        String[] layout = new String[size];
+        for (int i = 0; i < size; i++) layout[i] = names[i].name;
+        return layout;
+    }
+    public boolean link(String[] layout) {
+        // Compiled code can only be reused if every global it references ends up in the same slot
+        for (int i = 0; i < layout.length; i++) {
+            if (indexOf(Symbol.of(layout[i])) != i) return false;
+        }
+        return true;
+    }
+
+    public void set(Symbol key, Value value) {
+        slots[indexOf(key)] = value != null ? value : Value.NULL;
+    }
+    public Value get(Symbol key) {
+        Integer index = indices.get(key);
+        return index != null && slots[index] != Value.NULL ? slots[index] : null;
+    }
+    public Value getOrNull(Symbol key) {
+        Integer index = indices.get(key);
+        return index != null ? slots[index] : Value.NULL;
+    }
+
+    public boolean contains(Symbol key) {
+        return get(key) != null;
+    }
+
+    public void set(String key, Value value) {
+        set(Symbol.of(key), value);
+    }
+    public Value get(String key) {
+        return get(Symbol.of(key));
+    }
+    public Value getOrNull(String key) {
+        return getOrNull(Symbol.of(key));
+    }
+
+    public boolean contains(String key) {
+        return contains(Symbol.of(key));
+    }
+
+    public boolean link(Runnable runnable) {
+        try {
+            if (!link((String[]) runnable.getClass().getField("GLOBALS").get(null))) return false;
+            runnable.getClass().getField("globals").set(runnable, this);
+            return true;
+        } catch (IllegalAccessException | NoSuchFieldException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public void run(String file) {
+        run(file, false);
+    }
+    private void run(String file, boolean printedError) {
+        this.file = Utils.resolvePath(file);
+        this.printedError = printedError;
+        if (loader == null) loader = defaultLoader();
+
+        Runnable runnable = modules.get(this.file);
+        if (runnable != null && !link(runnable)) runnable = null;
+        if (runnable == null) {
+            runnable = loader.load(this.file, this);
+            if (runnable == null) return;
+            modules.put(this.file, runnable);
+        }
+
+        try {
+            runnable.run();
+        } catch (Error e) {
+            if (e.file == null) e.file = this.file;
+            if (!this.printedError) {
+                System.out.println(e);
+                this.printedError = true;
+            }
+        }
+    }
+
+    private static ModuleLoader defaultLoader() {
+        // The compiler is optional, without it only precompiled scripts can be run
+        try {
+            return (ModuleLoader) Class.forName("minegame159.koa.ScriptLoader").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            return new PrecompiledModuleLoader();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package minegame159.koa;
+
+// Every compiled unit gets its own loader, its classes are unloaded once nothing references the loader, the classes or their instances
+public class KoaClassLoader extends ClassLoader {
+    static {
+        // Has to happen before an instance is created, loadClass then locks by class name instead of locking the whole loader
+        registerAsParallelCapable();
+    }
+
+    public KoaClassLoader(ClassLoader parent) {
+        super(parent);
+    }
+
+    Class<?> define(String name, byte[] bytes) {
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+
+    // Creates the runnable of a compiled unit, it still has to be linked against globals before it runs
+    public static Runnable instantiate(Class<?> klass, String file) {
+        try {
+            Runnable obj = (Runnable) klass.getDeclaredConstructor().newInstance();
+            klass.getField("file").set(obj, file);
+            return obj;
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
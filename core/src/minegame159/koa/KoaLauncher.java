@@ -0,0 +1,17 @@
+package minegame159.koa;
+
+// Entry point of jars written by koa compile, runs the first script of the index without the compiler
+public class KoaLauncher {
+    public static void main(String[] args) {
+        PrecompiledModuleLoader loader = new PrecompiledModuleLoader();
+
+        if (loader.entry() == null) {
+            System.out.println("No compiled scripts found.");
+            return;
+        }
+
+        Globals globals = new Globals();
+        globals.loader = loader;
+        globals.run(loader.entry());
+    }
+}
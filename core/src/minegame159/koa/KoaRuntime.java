@@ -0,0 +1,61 @@
+package minegame159.koa;
+
+// Slow and error paths shared by compiled code, call sites only keep the type check and a branch to these
+public class KoaRuntime {
+    private KoaRuntime() {}
+
+    // Errors are returned so the compiled code can throw them and the verifier knows the branch ends there
+    public static Error wrongType(Value value, String expected, String file, int line) {
+        return new Error(file, line, "Wrong Type - Expected: " + expected + ", Got: " + value.type);
+    }
+
+    public static Error wrongNumberOfArguments(int expected, int got, String file, int line) {
+        return new Error(file, line, "Wrong number of arguments - Expected: " + expected + ", Got: " + got);
+    }
+
+    public static double toNumber(Value value, String file, int line) {
+        if (!value.isNumber()) throw wrongType(value, "Number", file, line);
+        return value.toNumber();
+    }
+
+    // Arithmetic on boxed values, compiled code only calls these once the left side is not a raw number
+    public static Value add(Value left, Value right, String file, int line) {
+        if (left.isNumber()) return Value.Number.valueOf(left.toNumber() + toNumber(right, file, line));
+        Value.Table table = metamethodTable(left, file, line);
+        if (!table.mtContainsAdd()) throw wrongType(left, "Number or Table", file, line);
+        return table.mtGetAdd().run1(table, right);
+    }
+
+    public static Value subtract(Value left, Value right, String file, int line) {
+        if (left.isNumber()) return Value.Number.valueOf(left.toNumber() - toNumber(right, file, line));
+        Value.Table table = metamethodTable(left, file, line);
+        if (!table.mtContainsSubtract()) throw wrongType(left, "Number or Table", file, line);
+        return table.mtGetSubtract().run1(table, right);
+    }
+
+    public static Value multiply(Value left, Value right, String file, int line) {
+        if (left.isNumber()) return Value.Number.valueOf(left.toNumber() * toNumber(right, file, line));
+        Value.Table table = metamethodTable(left, file, line);
+        if (!table.mtContainsMultiply()) throw wrongType(left, "Number or Table", file, line);
+        return table.mtGetMultiply().run1(table, right);
+    }
+
+    public static Value divide(Value left, Value right, String file, int line) {
+        if (left.isNumber()) return Value.Number.valueOf(left.toNumber() / toNumber(right, file, line));
+        Value.Table table = metamethodTable(left, file, line);
+        if (!table.mtContainsDivide()) throw wrongType(left, "Number or Table", file, line);
+        return table.mtGetDivide().run1(table, right);
+    }
+
+    public static Value remainder(Value left, Value right, String file, int line) {
+        if (left.isNumber()) return Value.Number.valueOf(left.toNumber() % toNumber(right, file, line));
+        Value.Table table = metamethodTable(left, file, line);
+        if (!table.mtContainsRemainder()) throw wrongType(left, "Number or Table", file, line);
+        return table.mtGetRemainder().run1(table, right);
+    }
+
+    private static Value.Table metamethodTable(Value left, String file, int line) {
+        if (!left.isTable()) throw wrongType(left, "Number or Table", file, line);
+        return left.toTable();
+    }
+}
@@ -0,0 +1,129 @@
+package minegame159.koa;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.util.Arrays;
+
+// Bootstrap for compiled calls, every call site keeps a small inline cache of callee classes before going megamorphic
+public class Linker {
+    public static final int MAX_CACHED_CLASSES = 4;
+
+    private static final MethodHandle RUN;
+    private static final MethodHandle[] RUN_FIXED = new MethodHandle[Value.Function.MAX_FIXED_ARGS + 1];
+    private static final MethodHandle CHECK_CLASS;
+    private static final MethodHandle CHECK_TARGET;
+    private static final MethodHandle TARGET;
+    private static final MethodHandle FALLBACK;
+    private static final MethodHandle RESOLVE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            RUN = lookup.findVirtual(Value.Function.class, "run", MethodType.methodType(Value.class, Value.Table.class, Value[].class));
+            for (int i = 0; i < RUN_FIXED.length; i++) {
+                MethodType type = MethodType.methodType(Value.class, Value.Table.class).appendParameterTypes(fixedArgs(i));
+                RUN_FIXED[i] = lookup.findVirtual(Value.Function.class, "run" + i, type);
+            }
+            CHECK_CLASS = lookup.findStatic(Linker.class, "checkClass", MethodType.methodType(boolean.class, Class.class, Value.class));
+            CHECK_TARGET = lookup.findStatic(Linker.class, "checkTarget", MethodType.methodType(boolean.class, Class.class, Class.class, Value.class));
+            TARGET = lookup.findVirtual(Value.Function.class, "target", MethodType.methodType(Value.Function.class));
+            FALLBACK = lookup.findVirtual(Site.class, "fallback", MethodType.methodType(Value.class, Value.class, Value.Table.class, Value[].class));
+            RESOLVE = lookup.findVirtual(Site.class, "resolve", MethodType.methodType(Value.Function.class, Value.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // Call sites with up to MAX_FIXED_ARGS arguments pass them directly, others pass them in an array
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, String file, int line, int argCount) {
+        boolean fixed = argCount <= Value.Function.MAX_FIXED_ARGS;
+        Site site = new Site(type, file, line, argCount, fixed ? RUN_FIXED[argCount] : RUN);
+
+        MethodHandle fallback = FALLBACK.bindTo(site);
+        if (fixed) fallback = fallback.asCollector(Value[].class, argCount);
+        site.setTarget(fallback.asType(type));
+
+        return site;
+    }
+
+    private static boolean checkClass(Class<?> klass, Value callee) {
+        return callee.getClass() == klass;
+    }
+    private static boolean checkTarget(Class<?> klass, Class<?> targetClass, Value callee) {
+        if (callee.getClass() != klass) return false;
+        Value.Function target = callee.toFunction().target();
+        return target != null && target.getClass() == targetClass;
+    }
+
+    private static Class<?>[] fixedArgs(int argCount) {
+        Class<?>[] args = new Class<?>[argCount];
+        for (int i = 0; i < argCount; i++) args[i] = Value.class;
+        return args;
+    }
+
+    private static class Site extends MutableCallSite {
+        private final String file;
+        private final int line;
+        private final int argCount;
+        private final MethodHandle run;
+        private int cachedClasses;
+
+        public Site(MethodType type, String file, int line, int argCount, MethodHandle run) {
+            super(type);
+            this.file = file;
+            this.line = line;
+            this.argCount = argCount;
+            this.run = run;
+        }
+
+        public Value fallback(Value callee, Value.Table self, Value[] args) {
+            Value.Function function = resolve(callee);
+
+            // Tables with __call are rare so only plain functions are cached, functions without a target yet are cached once they have one
+            if (callee.isFunction() && callee.toFunction().target() != null) {
+                synchronized (this) {
+                    if (cachedClasses < MAX_CACHED_CLASSES) {
+                        Class<?>[] parameters = type().parameterArray();
+                        MethodHandle test, target = run.asType(run.type().changeParameterType(0, function.getClass()));
+
+                        if (function == callee) test = MethodHandles.insertArguments(CHECK_CLASS, 0, callee.getClass());
+                        else {
+                            // Forwarding functions share a class so the guard checks the class of the target too
+                            test = MethodHandles.insertArguments(CHECK_TARGET, 0, callee.getClass(), function.getClass());
+                            target = MethodHandles.filterArguments(target, 0, TARGET.asType(MethodType.methodType(function.getClass(), Value.class)));
+                        }
+
+                        test = MethodHandles.dropArguments(test, 1, Arrays.copyOfRange(parameters, 1, parameters.length));
+                        target = target.asType(type());
+
+                        setTarget(MethodHandles.guardWithTest(test, target, getTarget()));
+                        cachedClasses++;
+                    } else if (cachedClasses == MAX_CACHED_CLASSES) {
+                        setTarget(MethodHandles.filterArguments(run, 0, RESOLVE.bindTo(this)).asType(type()));
+                        cachedClasses++;
+                    }
+                }
+            }
+
+            return function.run(self, args);
+        }
+
+        public Value.Function resolve(Value callee) {
+            Value.Function function;
+
+            if (callee.isFunction()) function = callee.toFunction();
+            else if (callee.isTable() && callee.toTable().mtContainsCall()) function = callee.toTable().mtGetCall();
+            else throw KoaRuntime.wrongType(callee, "Function or Table", file, line);
+
+            // Functions keep the same argument count for their whole life so the check isn't repeated on cached classes
+            if (function.argCount() >= 0 && function.argCount() != argCount) throw KoaRuntime.wrongNumberOfArguments(function.argCount(), argCount, file, line);
+
+            // Functions that are still interpreted run themselves
+            Value.Function target = function.target();
+            return target != null ? target : function;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package minegame159.koa;
+
+// Turns a script path into a runnable unit, the compiler provides one that compiles scripts and precompiled jars use PrecompiledModuleLoader
+public interface ModuleLoader {
+    // Returns a unit already linked against globals or null if the script can't be loaded, the loader reports why
+    Runnable load(String file, Globals globals);
+}
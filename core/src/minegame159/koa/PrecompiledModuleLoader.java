@@ -0,0 +1,69 @@
+package minegame159.koa;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Loads scripts compiled ahead of time, the index maps every script path to its main class with the entry script first
+public class PrecompiledModuleLoader implements ModuleLoader {
+    public static final String INDEX = "META-INF/koa/modules";
+
+    private final ClassLoader classLoader;
+    private final Map<String, String> classes = new LinkedHashMap<>();
+
+    public PrecompiledModuleLoader() {
+        this(PrecompiledModuleLoader.class.getClassLoader());
+    }
+
+    public PrecompiledModuleLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+
+        try {
+            Enumeration<URL> indices = classLoader.getResources(INDEX);
+            while (indices.hasMoreElements()) {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(indices.nextElement().openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        int tab = line.indexOf('\t');
+                        if (tab != -1 && !classes.containsKey(line.substring(0, tab))) classes.put(line.substring(0, tab), line.substring(tab + 1));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public String entry() {
+        return classes.isEmpty() ? null : classes.keySet().iterator().next();
+    }
+
+    @Override
+    public Runnable load(String file, Globals globals) {
+        String name = classes.get(file);
+        if (name == null) {
+            System.out.println("Script '" + file + "' was not compiled.");
+            return null;
+        }
+
+        Runnable runnable;
+        try {
+            runnable = KoaClassLoader.instantiate(Class.forName(name, true, classLoader), file);
+        } catch (ClassNotFoundException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        // Precompiled code can't be compiled again against a different layout
+        if (runnable != null && !globals.link(runnable)) {
+            System.out.println("Script '" + file + "' was compiled against different globals.");
+            return null;
+        }
+        return runnable;
+    }
+}
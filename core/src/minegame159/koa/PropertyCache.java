@@ -0,0 +1,67 @@
+package minegame159.koa;
+
+// Inline cache used by every compiled obj.name access, remembers the last seen shape and the slot of the key in it
+public final class PropertyCache {
+    private final Symbol key;
+    private Entry entry;
+
+    public PropertyCache(Symbol key) {
+        this.key = key;
+    }
+
+    public Value get(Value.Table table) {
+        Entry entry = this.entry;
+
+        if (entry != null && entry.shape == table.shape) {
+            if (entry.index >= 0) return table.slots[entry.index];
+            return table.getFromIndexOrNull(key);
+        }
+
+        return getMiss(table);
+    }
+
+    public void set(Value.Table table, Value value) {
+        Entry entry = this.entry;
+
+        if (entry != null && entry.shape == table.shape) {
+            if (entry.index >= 0) {
+                table.setSlot(entry.index, value);
+                return;
+            }
+            if (entry.next != null) {
+                table.addSlot(entry.next, value);
+                return;
+            }
+        }
+
+        setMiss(table, value);
+    }
+
+    private Value getMiss(Value.Table table) {
+        Value value = table.getOrNull(key);
+        if (table.shape != null) entry = new Entry(table.shape, table.shape.indexOf(key), null);
+        return value;
+    }
+
+    private void setMiss(Value.Table table, Value value) {
+        Shape before = table.shape;
+        table.set(key, value);
+        Shape after = table.shape;
+
+        if (before == null || after == null) return;
+        if (before == after) entry = new Entry(after, after.indexOf(key), null);
+        else if (after.parent == before && after.key == key) entry = new Entry(before, -1, after);
+    }
+
+    private static class Entry {
+        public final Shape shape;
+        public final int index;
+        public final Shape next;
+
+        public Entry(Shape shape, int index, Shape next) {
+            this.shape = shape;
+            this.index = index;
+            this.next = next;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package minegame159.koa;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Hidden class of a table, tables with the same keys added in the same order share the same shape
+public final class Shape {
+    public static final Shape EMPTY = new Shape();
+    // Root of empty read only tables, no table is ever written with it so no inline cache can store through it
+    public static final Shape READ_ONLY = new Shape();
+    public static final int MAX_PROPERTIES = 32;
+
+    public final Shape parent;
+    public final Symbol key;
+
+    private final Map<Symbol, Integer> indices;
+    private final Symbol[] keys;
+    private final ConcurrentHashMap<Symbol, Shape> transitions = new ConcurrentHashMap<>(1);
+
+    private Shape() {
+        parent = null;
+        key = null;
+        indices = new HashMap<>(0);
+        keys = new Symbol[0];
+    }
+
+    private Shape(Shape parent, Symbol key) {
+        this.parent = parent;
+        this.key = key;
+
+        indices = new HashMap<>(parent.indices);
+        indices.put(key, parent.keys.length);
+
+        keys = new Symbol[parent.keys.length + 1];
+        System.arraycopy(parent.keys, 0, keys, 0, parent.keys.length);
+        keys[parent.keys.length] = key;
+    }
+
+    public int indexOf(Symbol key) {
+        Integer index = indices.get(key);
+        return index != null ? index : -1;
+    }
+
+    public Symbol keyAt(int index) {
+        return keys[index];
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public Shape add(Symbol key) {
+        Shape shape = transitions.get(key);
+
+        if (shape == null) {
+            shape = new Shape(this, key);
+            Shape existing = transitions.putIfAbsent(key, shape);
+            if (existing != null) shape = existing;
+        }
+
+        return shape;
+    }
+}
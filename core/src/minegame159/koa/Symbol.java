@@ -0,0 +1,65 @@
+package minegame159.koa;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interned table and global key, two symbols with the same name are always the same object so they are compared by identity
+public final class Symbol {
+    private static final ConcurrentHashMap<String, Entry> symbols = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<Symbol> collected = new ReferenceQueue<>();
+
+    public final String name;
+    private final int hash;
+
+    private Symbol(String name) {
+        this.name = name;
+        this.hash = name.hashCode();
+    }
+
+    public static Symbol of(String name) {
+        Entry entry = symbols.get(name);
+        Symbol symbol = entry != null ? entry.get() : null;
+        if (symbol != null) return symbol;
+
+        purge();
+
+        while (true) {
+            symbol = new Symbol(name);
+            Entry created = new Entry(symbol);
+
+            // Another thread may intern the same name in between, whoever swaps the map entry first wins and the others retry
+            if (entry == null ? symbols.putIfAbsent(name, created) == null : symbols.replace(name, entry, created)) return symbol;
+
+            entry = symbols.get(name);
+            Symbol existing = entry != null ? entry.get() : null;
+            if (existing != null) return existing;
+        }
+    }
+
+    // Drops the entries of collected symbols, an entry that was already replaced by a live symbol is kept
+    private static void purge() {
+        Reference<? extends Symbol> reference;
+        while ((reference = collected.poll()) != null) symbols.remove(((Entry) reference).name, reference);
+    }
+
+    private static class Entry extends WeakReference<Symbol> {
+        public final String name;
+
+        public Entry(Symbol symbol) {
+            super(symbol, collected);
+            this.name = symbol.name;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,520 @@
+package minegame159.koa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public abstract class Value {
+    public enum Type {
+        Null,
+        Bool,
+        Number,
+        Table,
+        Function
+    }
+
+    public static final Null NULL = new Null();
+    public static final Bool TRUE = new Bool(true);
+    public static final Bool FALSE = new Bool(false);
+
+    public static class Null extends Value {
+        public Null() {
+            super(Type.Null);
+        }
+
+        @Override
+        public String toString() {
+            return "null";
+        }
+    }
+
+    public static class Bool extends Value {
+        public final boolean value;
+
+        private Bool(boolean value) {
+            super(Type.Bool);
+            this.value = value;
+        }
+
+        public static Bool valueOf(boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
+        @Override
+        public String toString() {
+            return value ? "true" : "false";
+        }
+    }
+
+    public static class Number extends Value {
+        private static final int CACHE_LOW = -128;
+        private static final int CACHE_HIGH = 1024;
+        private static final Number[] cache = new Number[CACHE_HIGH - CACHE_LOW + 1];
+
+        static {
+            for (int i = 0; i < cache.length; i++) cache[i] = new Number(i + CACHE_LOW);
+        }
+
+        public final double value;
+
+        public Number(double value) {
+            super(Type.Number);
+            this.value = value;
+        }
+
+        public static Number valueOf(double value) {
+            int i = (int) value;
+            if (i == value && i >= CACHE_LOW && i <= CACHE_HIGH && (i != 0 || Double.doubleToRawLongBits(value) == 0)) return cache[i - CACHE_LOW];
+            return new Number(value);
+        }
+
+        @Override
+        public String toString() {
+            return Double.toString(value);
+        }
+    }
+
+    public static class Table extends Value {
+        private static final Value[] EMPTY_SLOTS = new Value[0];
+
+        private static final Symbol INDEX = Symbol.of("__index");
+        private static final Symbol TO_STRING = Symbol.of("__toString");
+        private static final Symbol ADD = Symbol.of("__add");
+        private static final Symbol SUBTRACT = Symbol.of("__subtract");
+        private static final Symbol MULTIPLY = Symbol.of("__multiply");
+        private static final Symbol DIVIDE = Symbol.of("__divide");
+        private static final Symbol REMAINDER = Symbol.of("__remainder");
+        private static final Symbol CALL = Symbol.of("__call");
+        private static final Symbol EQUAL = Symbol.of("__equal");
+
+        // Keys are stored in slots described by the shape until there are too many of them, then the table switches to a map
+        Shape shape = Shape.EMPTY;
+        Value[] slots = EMPTY_SLOTS;
+        private Map<Symbol, Value> values;
+        private Table metatable;
+
+        // Metamethods of this table when it is used as a metatable, resolved on first use and dropped on every write
+        private Metamethods metamethods;
+
+        // Integral keys 0 to arraySize - 1 live in the array part, other number keys are stored under their string form
+        private Value[] array = EMPTY_SLOTS;
+        private int arraySize;
+        private boolean numberKeysInHash;
+        private boolean readOnly;
+
+        public Table() {
+            super(Type.Table);
+        }
+
+        public Table(int arrayCapacity) {
+            super(Type.Table);
+            if (arrayCapacity > 0) array = new Value[arrayCapacity];
+        }
+
+        public void add(Value value) {
+            set(arraySize, value);
+        }
+        public void set(double key, Value value) {
+            if (readOnly) readOnlyError();
+            int index = (int) key;
+
+            if (index == key && index >= 0) {
+                if (index < arraySize) {
+                    if (value == null) removeFromArray(index);
+                    else array[index] = value;
+                    return;
+                }
+
+                if (index == arraySize && value != null) {
+                    if (arraySize >= array.length) array = Arrays.copyOf(array, Math.max(4, array.length * 2));
+                    array[arraySize++] = value;
+                    migrateToArray();
+                    return;
+                }
+            }
+
+            if (value != null) numberKeysInHash = true;
+            set(numberKey(key), value);
+        }
+        public void set(Value key, Value value) {
+            if (key.type == Type.Number) set(((Number) key).value, value);
+            else set(key.toString(), value);
+        }
+        public Value get(double key) {
+            int index = (int) key;
+            if (index == key && index >= 0 && index < arraySize) return array[index];
+
+            Value value = numberKeysInHash ? getRaw(numberKey(key)) : null;
+            if (value == null && mtContainsIndex()) value = mtGetIndex().toTable().get(key);
+            return value;
+        }
+        public Value getOrNull(double key) {
+            Value value = get(key);
+            return value != null ? value : NULL;
+        }
+        public Value getOrNull(Value key) {
+            if (key.type == Type.Number) return getOrNull(((Number) key).value);
+            return getOrNull(key.toString());
+        }
+
+        public void set(Symbol key, Value value) {
+            if (readOnly) readOnlyError();
+            metamethods = null;
+
+            if (shape != null) {
+                int index = shape.indexOf(key);
+
+                if (index >= 0) {
+                    if (value == null) removeSlot(index);
+                    else slots[index] = value;
+                    return;
+                }
+
+                if (value == null) return;
+                if (shape.size() < Shape.MAX_PROPERTIES) {
+                    addSlot(shape.add(key), value);
+                    return;
+                }
+
+                toMap();
+            }
+
+            if (value == null) values.remove(key);
+            else values.put(key, value);
+        }
+        public Value get(Symbol key) {
+            Value value = getRaw(key);
+            if (value == null && mtContainsIndex()) value = mtGetIndex().toTable().get(key);
+            return value;
+        }
+        public Value getOrNull(Symbol key) {
+            Value value = get(key);
+            return value != null ? value : NULL;
+        }
+        public boolean contains(Symbol key) {
+            return getRaw(key) != null;
+        }
+
+        // Strings like "1.0" are the same key as the number they spell, wherever that number is stored
+        public void set(String key, Value value) {
+            double number = numberKey(key);
+            if (number == number) set(number, value);
+            else {
+                if (value != null && key.equals("NaN")) numberKeysInHash = true;
+                set(Symbol.of(key), value);
+            }
+        }
+        public Value get(String key) {
+            double number = numberKey(key);
+            return number == number ? get(number) : get(Symbol.of(key));
+        }
+        public Value getOrNull(String key) {
+            double number = numberKey(key);
+            return number == number ? getOrNull(number) : getOrNull(Symbol.of(key));
+        }
+        public boolean contains(String key) {
+            double number = numberKey(key);
+            if (number != number) return contains(Symbol.of(key));
+
+            int index = (int) number;
+            if (index == number && index >= 0 && index < arraySize) return true;
+            return numberKeysInHash && getRaw(numberKey(number)) != null;
+        }
+
+        public Table makeReadOnly() {
+            // Read only tables get a shape no writable table has or are kept in map mode so inline caches never write into their slots
+            if (shape == Shape.EMPTY) shape = Shape.READ_ONLY;
+            else if (shape != null) toMap();
+            readOnly = true;
+            return this;
+        }
+        private static void readOnlyError() {
+            // Tables don't know where they are written from, the script that runs fills in the file
+            throw new Error(null, 0, "Table is read only.");
+        }
+
+        public int size() {
+            return arraySize + (shape != null ? shape.size() : values.size());
+        }
+
+        private Value getRaw(Symbol key) {
+            if (shape != null) {
+                int index = shape.indexOf(key);
+                return index >= 0 ? slots[index] : null;
+            }
+            return values.get(key);
+        }
+
+        private void migrateToArray() {
+            // Move following keys from the hash part after the array part grew
+            while (numberKeysInHash) {
+                Symbol key = numberKey(arraySize);
+                Value value = getRaw(key);
+                if (value == null) break;
+
+                set(key, null);
+                if (arraySize >= array.length) array = Arrays.copyOf(array, array.length * 2);
+                array[arraySize++] = value;
+            }
+        }
+
+        private void removeFromArray(int index) {
+            // Keys after the removed one can't stay in the array part so they are moved to the hash part
+            int size = arraySize;
+            arraySize = index;
+            for (int i = index + 1; i < size; i++) set(numberKey(i), array[i]);
+            if (size > index + 1) numberKeysInHash = true;
+            Arrays.fill(array, index, size, null);
+        }
+
+        private static Symbol numberKey(double key) {
+            return Symbol.of(Double.toString(key));
+        }
+        // Returns the number the key is the string form of or NaN, a NaN key is stored under its string form anyway
+        private static double numberKey(String key) {
+            if (key.isEmpty()) return Double.NaN;
+            char c = key.charAt(0);
+            if ((c < '0' || c > '9') && c != '-' && c != 'I') return Double.NaN;
+
+            try {
+                double number = Double.parseDouble(key);
+                return Double.toString(number).equals(key) ? number : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        Value getFromIndexOrNull(Symbol key) {
+            Value value = null;
+            if (mtContainsIndex()) value = mtGetIndex().toTable().get(key);
+            return value != null ? value : NULL;
+        }
+
+        void setSlot(int index, Value value) {
+            slots[index] = value;
+            metamethods = null;
+        }
+
+        void addSlot(Shape shape, Value value) {
+            metamethods = null;
+            int index = shape.size() - 1;
+            if (index >= slots.length) slots = Arrays.copyOf(slots, Math.max(4, slots.length * 2));
+            slots[index] = value;
+            this.shape = shape;
+        }
+
+        private void removeSlot(int index) {
+            // Rebuild the shape from the empty one without the removed key
+            Shape oldShape = shape;
+            Value[] oldSlots = slots;
+
+            shape = Shape.EMPTY;
+            slots = EMPTY_SLOTS;
+            for (int i = 0; i < oldShape.size(); i++) {
+                if (i != index) addSlot(shape.add(oldShape.keyAt(i)), oldSlots[i]);
+            }
+        }
+
+        private void toMap() {
+            values = new HashMap<>(shape.size() * 2);
+            for (int i = 0; i < shape.size(); i++) values.put(shape.keyAt(i), slots[i]);
+
+            shape = null;
+            slots = EMPTY_SLOTS;
+        }
+
+        public void setMetatable(Table metatable) {
+            if (readOnly) readOnlyError();
+            this.metatable = metatable;
+        }
+        public Table getMetatable() {
+            return metatable;
+        }
+        public boolean mtContainsIndex() {
+            return metatable != null && metatable.metamethods().index != null;
+        }
+        public Table mtGetIndex() {
+            return metatable.metamethods().index.toTable();
+        }
+        public boolean mtContainsToString() {
+            return metatable != null && metatable.metamethods().toString != null;
+        }
+        public Function mtGetToString() {
+            return metatable.metamethods().toString.toFunction();
+        }
+        public boolean mtContainsAdd() {
+            return metatable != null && metatable.metamethods().add != null;
+        }
+        public Function mtGetAdd() {
+            return metatable.metamethods().add.toFunction();
+        }
+        public boolean mtContainsSubtract() {
+            return metatable != null && metatable.metamethods().subtract != null;
+        }
+        public Function mtGetSubtract() {
+            return metatable.metamethods().subtract.toFunction();
+        }
+        public boolean mtContainsMultiply() {
+            return metatable != null && metatable.metamethods().multiply != null;
+        }
+        public Function mtGetMultiply() {
+            return metatable.metamethods().multiply.toFunction();
+        }
+        public boolean mtContainsDivide() {
+            return metatable != null && metatable.metamethods().divide != null;
+        }
+        public Function mtGetDivide() {
+            return metatable.metamethods().divide.toFunction();
+        }
+        public boolean mtContainsRemainder() {
+            return metatable != null && metatable.metamethods().remainder != null;
+        }
+        public Function mtGetRemainder() {
+            return metatable.metamethods().remainder.toFunction();
+        }
+        public boolean mtContainsCall() {
+            return metatable != null && metatable.metamethods().call != null;
+        }
+        public Function mtGetCall() {
+            return metatable.metamethods().call.toFunction();
+        }
+        public boolean mtContainsEqual() {
+            return metatable != null && metatable.metamethods().equal != null;
+        }
+        public Function mtGetEqual() {
+            return metatable.metamethods().equal.toFunction();
+        }
+
+        private Metamethods metamethods() {
+            Metamethods metamethods = this.metamethods;
+            if (metamethods == null) {
+                metamethods = new Metamethods(this);
+                this.metamethods = metamethods;
+            }
+            return metamethods;
+        }
+
+        @Override
+        public String toString() {
+            if (metatable != null && mtContainsToString()) return mtGetToString().run(this).toString();
+            else return "table";
+        }
+    }
+
+    private static class Metamethods {
+        public final Value index, toString, add, subtract, multiply, divide, remainder, call, equal;
+
+        public Metamethods(Table metatable) {
+            index = metatable.getRaw(Table.INDEX);
+            toString = metatable.getRaw(Table.TO_STRING);
+            add = metatable.getRaw(Table.ADD);
+            subtract = metatable.getRaw(Table.SUBTRACT);
+            multiply = metatable.getRaw(Table.MULTIPLY);
+            divide = metatable.getRaw(Table.DIVIDE);
+            remainder = metatable.getRaw(Table.REMAINDER);
+            call = metatable.getRaw(Table.CALL);
+            equal = metatable.getRaw(Table.EQUAL);
+        }
+    }
+
+    public abstract static class Function extends Value {
+        // Calls with up to this many arguments go through runN and don't need an argument array
+        public static final int MAX_FIXED_ARGS = 4;
+
+        public Function() {
+            super(Type.Function);
+        }
+
+        public abstract int argCount();
+
+        // Function that calls are linked against, functions that only forward calls return the one they forward to or null if there is none yet
+        public Function target() {
+            return this;
+        }
+
+        public abstract Value run(Table table, Value... args);
+
+        public Value run0(Table table) {
+            return run(table);
+        }
+        public Value run1(Table table, Value a0) {
+            return run(table, a0);
+        }
+        public Value run2(Table table, Value a0, Value a1) {
+            return run(table, a0, a1);
+        }
+        public Value run3(Table table, Value a0, Value a1, Value a2) {
+            return run(table, a0, a1, a2);
+        }
+        public Value run4(Table table, Value a0, Value a1, Value a2, Value a3) {
+            return run(table, a0, a1, a2, a3);
+        }
+
+        @Override
+        public String toString() {
+            return "function";
+        }
+    }
+
+    public final Type type;
+
+    public Value(Type type) {
+        this.type = type;
+    }
+
+    public boolean isNull() {
+        return type == Type.Null;
+    }
+    public boolean isBool() {
+        return type == Type.Bool;
+    }
+    public boolean isNumber() {
+        return type == Type.Number;
+    }
+    public boolean isTable() {
+        return type == Type.Table;
+    }
+    public boolean isFunction() {
+        return type == Type.Function;
+    }
+
+    public boolean toBool() {
+        return ((Bool) this).value;
+    }
+    public double toNumber() {
+        return ((Number) this).value;
+    }
+    public Table toTable() {
+        return (Table) this;
+    }
+    public Function toFunction() {
+        return (Function) this;
+    }
+
+    public boolean isTruthy() {
+        switch (type) {
+            default:
+            case Null:   return false;
+            case Function:
+            case Table:
+            case Number: return true;
+            case Bool:   return ((Bool) this).value;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Value) || type != ((Value) obj).type) return false;
+
+        if (this instanceof Table && ((Table) this).mtContainsEqual()) return ((Table) this).mtGetEqual().run((Table) this, (Value) obj).toBool();
+
+        switch (type) {
+            case Null:   return true;
+            case Bool:   return toBool() == ((Bool) obj).value;
+            case Number: return toNumber() == ((Number) obj).value;
+            case Function:
+            case Table:  return this == obj;
+            default:     return false;
+        }
+    }
+}
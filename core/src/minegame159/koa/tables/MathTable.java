@@ -17,7 +17,7 @@ public class MathTable extends Value.Table {
 
             @Override
             public Value run(Table table, Value... args) {
-                return new Number(Math.round(args[0].toNumber()));
+                return Number.valueOf(Math.round(args[0].toNumber()));
             }
         });
         set("floor", new Function() {
@@ -28,7 +28,7 @@ public class MathTable extends Value.Table {
 
             @Override
             public Value run(Table table, Value... args) {
-                return new Number(Math.floor(args[0].toNumber()));
+                return Number.valueOf(Math.floor(args[0].toNumber()));
             }
         });
         set("ceil", new Function() {
@@ -39,7 +39,7 @@ public class MathTable extends Value.Table {
 
             @Override
             public Value run(Table table, Value... args) {
-                return new Number(Math.ceil(args[0].toNumber()));
+                return Number.valueOf(Math.ceil(args[0].toNumber()));
             }
         });
 
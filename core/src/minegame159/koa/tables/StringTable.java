@@ -0,0 +1,109 @@
+package minegame159.koa.tables;
+
+import minegame159.koa.Value;
+
+public class StringTable extends Value.Table {
+    // Shared by every string, methods are found through __index
+    private static final Table METHODS = new Table();
+    private static final Table METATABLE = new Table();
+
+    static {
+        METHODS.set("length", new Function() {
+            @Override
+            public int argCount() {
+                return 0;
+            }
+
+            @Override
+            public Value run(Table table, Value[] args) {
+                if (table instanceof StringTable) return Number.valueOf(((StringTable) table).length);
+                return Number.valueOf(table.toString().length());
+            }
+        });
+
+        METATABLE.set("__add", new Function() {
+            @Override
+            public int argCount() {
+                return 1;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                if (table instanceof StringTable) return ((StringTable) table).concat(args[0].toString());
+                return new StringTable(table.toString() + args[0]);
+            }
+        });
+        METATABLE.set("__equal", new Function() {
+            @Override
+            public int argCount() {
+                return 1;
+            }
+
+            @Override
+            public Value run(Table table, Value... args) {
+                if (table instanceof StringTable && args[0] instanceof StringTable && ((StringTable) table).length != ((StringTable) args[0]).length) return Bool.FALSE;
+                return Bool.valueOf(table.toString().equals(args[0].toString()));
+            }
+        });
+        METATABLE.set("__index", METHODS.makeReadOnly());
+        METATABLE.makeReadOnly();
+    }
+
+    // Concatenations share one builder, a string is the first length characters of it and is only flattened when observed
+    private String value;
+    private StringBuilder builder;
+    private final int length;
+
+    public StringTable(String value) {
+        this.value = value;
+        this.length = value.length();
+        setMetatable(METATABLE);
+    }
+
+    private StringTable(StringBuilder builder, int length) {
+        this.builder = builder;
+        this.length = length;
+        setMetatable(METATABLE);
+    }
+
+    // String literals are shared by every evaluation so they can't be written to
+    public static StringTable literal(String value) {
+        return (StringTable) new StringTable(value).makeReadOnly();
+    }
+
+    public StringTable concat(String other) {
+        StringBuilder builder = this.builder;
+
+        if (builder != null) {
+            synchronized (builder) {
+                // Append in place when nothing was appended after this string yet
+                if (builder.length() == length) {
+                    builder.append(other);
+                    return new StringTable(builder, builder.length());
+                }
+            }
+        }
+
+        builder = new StringBuilder(Math.max(16, (length + other.length()) * 2));
+        builder.append(toString()).append(other);
+        return new StringTable(builder, builder.length());
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        String value = this.value;
+
+        if (value == null) {
+            synchronized (builder) {
+                value = builder.substring(0, length);
+            }
+            this.value = value;
+        }
+
+        return value;
+    }
+}